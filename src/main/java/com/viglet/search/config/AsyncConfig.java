@@ -0,0 +1,74 @@
+package com.viglet.search.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class AsyncConfig implements WebMvcConfigurer {
+
+    @Value("${viglet.search.async.virtual-threads:true}")
+    private boolean virtualThreads;
+
+    @Value("${viglet.search.async.pool-size:16}")
+    private int poolSize;
+
+    @Value("${viglet.search.async.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${viglet.search.async.timeout:30000}")
+    private long timeout;
+
+    private ExecutorService searchExecutor;
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService searchExecutor() {
+        if (searchExecutor == null) {
+            searchExecutor = virtualThreads ? newVirtualThreadExecutor() : null;
+            if (searchExecutor == null) {
+                searchExecutor = newBoundedExecutor();
+            }
+        }
+        return searchExecutor;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setDefaultTimeout(timeout);
+        configurer.setTaskExecutor(new TaskExecutorAdapter(searchExecutor()));
+    }
+
+    private ExecutorService newVirtualThreadExecutor() {
+        // Compiled against Java 17, so look up the JDK 21+ factory reflectively
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private ExecutorService newBoundedExecutor() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "search-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        // Reject rather than queue without limit so callers get a fast 503 under overload
+        return new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+    }
+}
@@ -1,20 +1,24 @@
 package com.viglet.search.config;
 
+import com.viglet.search.service.PartitionedIndex;
 import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.core.SimpleAnalyzer;
+import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
-import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.codecs.KnnVectorsFormat;
+import org.apache.lucene.codecs.lucene99.Lucene99Codec;
+import org.apache.lucene.codecs.lucene99.Lucene99HnswScalarQuantizedVectorsFormat;
+import org.apache.lucene.codecs.lucene99.Lucene99HnswVectorsFormat;
 import org.apache.lucene.index.IndexWriterConfig;
-import org.apache.lucene.search.SearcherManager;
-import org.apache.lucene.store.Directory;
-import org.apache.lucene.store.FSDirectory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import jakarta.annotation.PreDestroy;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Locale;
 
 @Configuration
 public class LuceneConfig {
@@ -22,59 +26,79 @@ public class LuceneConfig {
     @Value("${viglet.search.index.path:./lucene-index}")
     private String indexPath;
     
-    private Directory directory;
-    private IndexWriter indexWriter;
-    private SearcherManager searcherManager;
+    @Value("${viglet.search.vector.hnsw.m:16}")
+    private int hnswM;
+    
+    @Value("${viglet.search.vector.hnsw.beam-width:100}")
+    private int hnswBeamWidth;
+    
+    @Value("${viglet.search.vector.quantize:false}")
+    private boolean vectorQuantize;
+    
+    @Value("${viglet.search.partition.enabled:false}")
+    private boolean partitionEnabled;
+    
+    @Value("${viglet.search.partition.period:month}")
+    private String partitionPeriod;
+    
+    @Value("${viglet.search.partition.hot-count:1}")
+    private int hotPartitions;
+    
+    // The index at viglet.search.index.path is the "default" collection and takes its settings
+    @Value("${viglet.search.collections.default.analyzer:${viglet.search.collections.analyzer:standard}}")
+    private String analyzerName;
+    
+    @Value("${viglet.search.collections.default.ram-buffer-mb:${viglet.search.collections.ram-buffer-mb:16}}")
+    private double ramBufferMb;
     
     @Bean
     public Analyzer analyzer() {
-        return new StandardAnalyzer();
+        return createAnalyzer(analyzerName);
     }
     
-    @Bean
-    public Directory directory() throws IOException {
-        if (directory == null) {
-            Path path = Paths.get(indexPath);
-            directory = FSDirectory.open(path);
-        }
-        return directory;
+    @Bean(destroyMethod = "close")
+    public PartitionedIndex partitionedIndex(Analyzer analyzer) throws IOException {
+        return openIndex(Paths.get(indexPath), analyzer, ramBufferMb);
     }
     
-    @Bean
-    public IndexWriter indexWriter(Directory directory, Analyzer analyzer) throws IOException {
-        if (indexWriter == null) {
+    /**
+     * Opens a collection's index with the partitioning and codec settings shared by all collections.
+     */
+    public PartitionedIndex openIndex(Path path, Analyzer analyzer, double ramBufferMb) throws IOException {
+        PartitionedIndex.Period period = partitionEnabled ? PartitionedIndex.Period.fromParam(partitionPeriod) : null;
+        return new PartitionedIndex(path, period, hotPartitions, () -> {
             IndexWriterConfig config = new IndexWriterConfig(analyzer);
-            config.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
-            indexWriter = new IndexWriter(directory, config);
-        }
-        return indexWriter;
+            config.setCodec(createCodec());
+            config.setRAMBufferSizeMB(ramBufferMb);
+            return config;
+        });
     }
     
-    @Bean
-    public SearcherManager searcherManager(Directory directory, IndexWriter indexWriter) throws IOException {
-        if (searcherManager == null) {
-            // Ensure the index exists by committing the IndexWriter first
-            indexWriter.commit();
-            searcherManager = new SearcherManager(directory, null);
+    public Analyzer createAnalyzer(String name) {
+        switch (name.trim().toLowerCase(Locale.ROOT)) {
+            case "standard":
+                return new StandardAnalyzer();
+            case "english":
+                return new EnglishAnalyzer();
+            case "simple":
+                return new SimpleAnalyzer();
+            case "whitespace":
+                return new WhitespaceAnalyzer();
+            default:
+                throw new IllegalArgumentException("Unknown analyzer: " + name);
         }
-        return searcherManager;
     }
     
-    @PreDestroy
-    public void cleanup() {
-        try {
-            if (indexWriter != null) {
-                indexWriter.close();
+    private Lucene99Codec createCodec() {
+        // Scalar quantization stores vectors as int8, cutting vector memory about 4x at some recall cost
+        KnnVectorsFormat vectorsFormat = vectorQuantize
+                ? new Lucene99HnswScalarQuantizedVectorsFormat(hnswM, hnswBeamWidth)
+                : new Lucene99HnswVectorsFormat(hnswM, hnswBeamWidth);
+        return new Lucene99Codec() {
+            @Override
+            public KnnVectorsFormat getKnnVectorsFormatForField(String field) {
+                return vectorsFormat;
             }
-            if (searcherManager != null) {
-                searcherManager.close();
-            }
-            if (directory != null) {
-                directory.close();
-            }
-        } catch (IOException e) {
-            // Log error but don't throw exception during shutdown
-            System.err.println("Error during Lucene cleanup: " + e.getMessage());
-        }
+        };
     }
 }
\ No newline at end of file
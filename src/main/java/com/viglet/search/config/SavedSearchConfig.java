@@ -0,0 +1,19 @@
+package com.viglet.search.config;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.monitor.Monitor;
+import org.apache.lucene.monitor.TermFilteredPresearcher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+
+@Configuration
+public class SavedSearchConfig {
+    
+    @Bean(destroyMethod = "close")
+    public Monitor savedSearchMonitor(Analyzer analyzer) throws IOException {
+        // Saved searches live in the database, so the monitor's own query index can stay in memory
+        return new Monitor(analyzer, new TermFilteredPresearcher());
+    }
+}
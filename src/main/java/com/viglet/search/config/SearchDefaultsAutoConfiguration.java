@@ -0,0 +1,32 @@
+package com.viglet.search.config;
+
+import com.viglet.search.service.EmbeddingProvider;
+import com.viglet.search.service.HashingEmbeddingProvider;
+import com.viglet.search.service.LoggingSavedSearchMatchSink;
+import com.viglet.search.service.SavedSearchMatchSink;
+import org.apache.lucene.analysis.Analyzer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Default beans that an application replaces by declaring its own. They live in an auto-configuration
+ * so that {@code @ConditionalOnMissingBean} is evaluated after the user configuration has been read.
+ */
+@AutoConfiguration
+public class SearchDefaultsAutoConfiguration {
+    
+    @Bean
+    @ConditionalOnMissingBean
+    public EmbeddingProvider embeddingProvider(Analyzer analyzer,
+                                               @Value("${viglet.search.vector.dimension:256}") int vectorDimension) {
+        return new HashingEmbeddingProvider(analyzer, vectorDimension);
+    }
+    
+    @Bean
+    @ConditionalOnMissingBean
+    public SavedSearchMatchSink savedSearchMatchSink() {
+        return new LoggingSavedSearchMatchSink();
+    }
+}
@@ -1,52 +1,77 @@
 package com.viglet.search.controller;
 
 import com.viglet.search.dto.ContentDto;
+import com.viglet.search.dto.SearchRequestDto;
 import com.viglet.search.dto.SearchResultDto;
 import com.viglet.search.entity.Content;
+import com.viglet.search.service.ClickTrackingService;
+import com.viglet.search.service.CollapseField;
+import com.viglet.search.service.CollectionRegistry;
 import com.viglet.search.service.ContentService;
+import com.viglet.search.service.ContentSyncService;
+import com.viglet.search.service.SearchMode;
+import com.viglet.search.service.UnknownCollectionException;
 import jakarta.validation.Valid;
 import org.apache.lucene.queryparser.classic.ParseException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.io.IOException;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
+/**
+ * Content of the default collection is served at {@code /api/content}, and content of a named collection
+ * at {@code /api/{collection}/content}.
+ */
 @RestController
-@RequestMapping("/api/content")
+@RequestMapping({"/api/content", "/api/{collection}/content"})
 public class ContentRestController {
     
     private final ContentService contentService;
+    private final ContentSyncService contentSyncService;
+    private final ClickTrackingService clickTrackingService;
     
     @Autowired
-    public ContentRestController(ContentService contentService) {
+    public ContentRestController(ContentService contentService, ContentSyncService contentSyncService,
+                                 ClickTrackingService clickTrackingService) {
         this.contentService = contentService;
+        this.contentSyncService = contentSyncService;
+        this.clickTrackingService = clickTrackingService;
     }
     
     @GetMapping
-    public ResponseEntity<List<Content>> getAllContent() {
-        List<Content> contents = contentService.findAll();
+    public ResponseEntity<List<Content>> getAllContent(@PathVariable(required = false) String collection) {
+        List<Content> contents = contentService.findAll(collection);
         return ResponseEntity.ok(contents);
     }
     
     @GetMapping("/{id}")
-    public ResponseEntity<Content> getContentById(@PathVariable Long id) {
-        Optional<Content> content = contentService.findById(id);
+    public ResponseEntity<Content> getContentById(@PathVariable(required = false) String collection,
+                                                  @PathVariable Long id) {
+        Optional<Content> content = contentService.findById(collection, id);
         return content.map(ResponseEntity::ok)
                      .orElse(ResponseEntity.notFound().build());
     }
     
     @PostMapping
-    public ResponseEntity<?> createContent(@Valid @RequestBody ContentDto contentDto) {
+    public ResponseEntity<?> createContent(@PathVariable(required = false) String collection,
+                                           @Valid @RequestBody ContentDto contentDto) {
         try {
-            Content createdContent = contentService.save(contentDto);
+            Content createdContent = contentService.save(collection, contentDto);
             return ResponseEntity.status(HttpStatus.CREATED).body(createdContent);
         } catch (IOException e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body("Error indexing content: " + e.getMessage());
+        } catch (UnknownCollectionException e) {
+            return ResponseEntity.notFound().build();
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body("Error creating content: " + e.getMessage());
@@ -54,9 +79,10 @@ public class ContentRestController {
     }
     
     @PutMapping("/{id}")
-    public ResponseEntity<?> updateContent(@PathVariable Long id, @Valid @RequestBody ContentDto contentDto) {
+    public ResponseEntity<?> updateContent(@PathVariable(required = false) String collection,
+                                           @PathVariable Long id, @Valid @RequestBody ContentDto contentDto) {
         try {
-            Content updatedContent = contentService.update(id, contentDto);
+            Content updatedContent = contentService.update(collection, id, contentDto);
             return ResponseEntity.ok(updatedContent);
         } catch (IOException e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -70,9 +96,10 @@ public class ContentRestController {
     }
     
     @DeleteMapping("/{id}")
-    public ResponseEntity<?> deleteContent(@PathVariable Long id) {
+    public ResponseEntity<?> deleteContent(@PathVariable(required = false) String collection,
+                                           @PathVariable Long id) {
         try {
-            contentService.delete(id);
+            contentService.delete(collection, id);
             return ResponseEntity.noContent().build();
         } catch (IOException e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -86,28 +113,82 @@ public class ContentRestController {
     }
     
     @GetMapping("/search")
-    public ResponseEntity<?> searchContent(
+    public CompletableFuture<ResponseEntity<?>> searchContent(
+            @PathVariable(required = false) String collection,
             @RequestParam(required = false) String query,
             @RequestParam(required = false) String category,
             @RequestParam(required = false) String author,
-            @RequestParam(defaultValue = "50") int maxResults) {
+            @RequestParam(defaultValue = "50") int maxResults,
+            @RequestParam(required = false) String mode,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) 
+            LocalDateTime createdFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) 
+            LocalDateTime createdTo,
+            @RequestParam(defaultValue = "false") boolean profile,
+            @RequestParam(defaultValue = "3") int explain,
+            @RequestParam(required = false) String collapse,
+            @RequestParam(defaultValue = "1") int groupSize) {
         
+        SearchMode searchMode;
+        CollapseField collapseField;
         try {
-            List<SearchResultDto> results = contentService.search(query, category, author, maxResults);
-            return ResponseEntity.ok(results);
-        } catch (IOException e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("Search error: " + e.getMessage());
-        } catch (ParseException e) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                    .body("Invalid query syntax: " + e.getMessage());
+            searchMode = SearchMode.fromParam(mode);
+            collapseField = CollapseField.fromParam(collapse);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(e.getMessage()));
         }
+        
+        SearchRequestDto request = new SearchRequestDto(query, category, author, maxResults, searchMode.name(),
+                createdFrom, createdTo);
+        if (collapseField != null) {
+            if (profile) {
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                        .body("Profiling is not supported for collapsed searches"));
+            }
+            if (maxResults < 1 || groupSize < 1) {
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                        .body("maxResults and groupSize must be at least 1 for collapsed searches"));
+            }
+            return contentService.groupedSearchAsync(collection, request, collapseField, groupSize)
+                    .<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+                    .exceptionally(this::searchError);
+        }
+        if (profile) {
+            return contentService.profileSearchAsync(collection, request, explain)
+                    .<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+                    .exceptionally(this::searchError);
+        }
+        
+        return contentService.searchAsync(collection, request)
+                .<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+                .exceptionally(this::searchError);
+    }
+    
+    /**
+     * Finds content related to an item, e.g. for a related content widget.
+     */
+    @GetMapping("/{id}/similar")
+    public CompletableFuture<ResponseEntity<?>> similarContent(@PathVariable(required = false) String collection,
+                                                               @PathVariable Long id,
+                                                               @RequestParam(defaultValue = "10") int maxResults) {
+        return contentService.similarAsync(collection, id, maxResults)
+                .<ResponseEntity<?>>thenApply(results -> results.<ResponseEntity<?>>map(ResponseEntity::ok)
+                        .orElseGet(() -> ResponseEntity.notFound().build()))
+                .exceptionally(this::searchError);
+    }
+    
+    @PostMapping("/msearch")
+    public CompletableFuture<ResponseEntity<?>> multiSearchContent(@PathVariable(required = false) String collection,
+                                                                   @RequestBody List<SearchRequestDto> requests) {
+        return contentService.multiSearchAsync(collection, requests)
+                .<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+                .exceptionally(this::searchError);
     }
     
     @PostMapping("/reindex")
-    public ResponseEntity<?> reindexAll() {
+    public ResponseEntity<?> reindexAll(@PathVariable(required = false) String collection) {
         try {
-            contentService.reindexAll();
+            contentService.reindexAll(collection);
             return ResponseEntity.ok("Reindexing completed successfully");
         } catch (IOException e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -115,13 +196,66 @@ public class ContentRestController {
         }
     }
     
+    @PostMapping("/sync")
+    public ResponseEntity<?> syncIndex(@PathVariable(required = false) String collection) {
+        if (collection != null && !collection.equals(CollectionRegistry.DEFAULT)) {
+            return ResponseEntity.badRequest().body("Delta sync only covers the default collection");
+        }
+        try {
+            int synced = contentSyncService.sync();
+            return ResponseEntity.ok("Delta sync completed, " + synced + " items re-indexed");
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error syncing index: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Records a click on a search result. Counts are applied to the popularity signal on the next flush,
+     * in whichever collection holds the content.
+     */
+    @PostMapping("/{id}/click")
+    public ResponseEntity<Void> recordClick(@PathVariable Long id) {
+        if (!clickTrackingService.recordClick(id)) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.accepted().build();
+    }
+    
     @GetMapping("/filter")
     public ResponseEntity<List<Content>> filterContent(
+            @PathVariable(required = false) String collection,
             @RequestParam(required = false) String category,
             @RequestParam(required = false) String author,
             @RequestParam(required = false) String query) {
         
-        List<Content> results = contentService.findByFilters(category, author, query);
+        List<Content> results = contentService.findByFilters(collection, category, author, query);
         return ResponseEntity.ok(results);
     }
+    
+    @ExceptionHandler(UnknownCollectionException.class)
+    public ResponseEntity<String> unknownCollection(UnknownCollectionException e) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+    }
+    
+    private ResponseEntity<?> searchError(Throwable throwable) {
+        Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                ? throwable.getCause() : throwable;
+        if (cause instanceof UnknownCollectionException) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(cause.getMessage());
+        }
+        if (cause instanceof ParseException) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Invalid query syntax: " + cause.getMessage());
+        }
+        if (cause instanceof IllegalArgumentException) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(cause.getMessage());
+        }
+        if (cause instanceof RejectedExecutionException) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body("Search capacity exceeded, retry later");
+        }
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body("Search error: " + cause.getMessage());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,72 @@
+package com.viglet.search.controller;
+
+import com.viglet.search.dto.SavedSearchDto;
+import com.viglet.search.entity.SavedSearch;
+import com.viglet.search.service.SavedSearchService;
+import jakarta.validation.Valid;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/saved-searches")
+public class SavedSearchRestController {
+    
+    private final SavedSearchService savedSearchService;
+    
+    @Autowired
+    public SavedSearchRestController(SavedSearchService savedSearchService) {
+        this.savedSearchService = savedSearchService;
+    }
+    
+    @GetMapping
+    public ResponseEntity<List<SavedSearch>> getSavedSearches(@RequestParam(required = false) String owner) {
+        List<SavedSearch> savedSearches = owner != null 
+                ? savedSearchService.findByOwner(owner) 
+                : savedSearchService.findAll();
+        return ResponseEntity.ok(savedSearches);
+    }
+    
+    @GetMapping("/{id}")
+    public ResponseEntity<SavedSearch> getSavedSearchById(@PathVariable Long id) {
+        Optional<SavedSearch> savedSearch = savedSearchService.findById(id);
+        return savedSearch.map(ResponseEntity::ok)
+                          .orElse(ResponseEntity.notFound().build());
+    }
+    
+    @PostMapping
+    public ResponseEntity<?> createSavedSearch(@Valid @RequestBody SavedSearchDto savedSearchDto) {
+        try {
+            SavedSearch created = savedSearchService.save(savedSearchDto);
+            return ResponseEntity.status(HttpStatus.CREATED).body(created);
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error registering saved search: " + e.getMessage());
+        } catch (ParseException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Invalid query syntax: " + e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Error creating saved search: " + e.getMessage());
+        }
+    }
+    
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> deleteSavedSearch(@PathVariable Long id) {
+        try {
+            savedSearchService.delete(id);
+            return ResponseEntity.noContent().build();
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error unregistering saved search: " + e.getMessage());
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.viglet.search.dto;
+
+import java.util.List;
+
+public class MultiSearchResultDto {
+    
+    private int status;
+    private List<SearchResultDto> results;
+    private String error;
+    
+    // Constructors
+    public MultiSearchResultDto() {
+    }
+    
+    public MultiSearchResultDto(int status, List<SearchResultDto> results, String error) {
+        this.status = status;
+        this.results = results;
+        this.error = error;
+    }
+    
+    // Getters and Setters
+    public int getStatus() {
+        return status;
+    }
+    
+    public void setStatus(int status) {
+        this.status = status;
+    }
+    
+    public List<SearchResultDto> getResults() {
+        return results;
+    }
+    
+    public void setResults(List<SearchResultDto> results) {
+        this.results = results;
+    }
+    
+    public String getError() {
+        return error;
+    }
+    
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -0,0 +1,35 @@
+package com.viglet.search.dto;
+
+import java.util.List;
+
+public class ProfiledSearchResultDto {
+    
+    private List<SearchResultDto> results;
+    private SearchProfileDto profile;
+    
+    // Constructors
+    public ProfiledSearchResultDto() {
+    }
+    
+    public ProfiledSearchResultDto(List<SearchResultDto> results, SearchProfileDto profile) {
+        this.results = results;
+        this.profile = profile;
+    }
+    
+    // Getters and Setters
+    public List<SearchResultDto> getResults() {
+        return results;
+    }
+    
+    public void setResults(List<SearchResultDto> results) {
+        this.results = results;
+    }
+    
+    public SearchProfileDto getProfile() {
+        return profile;
+    }
+    
+    public void setProfile(SearchProfileDto profile) {
+        this.profile = profile;
+    }
+}
@@ -0,0 +1,86 @@
+package com.viglet.search.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+
+public class SavedSearchDto {
+    
+    private Long id;
+    
+    @NotBlank(message = "Name is required")
+    @Size(max = 255, message = "Name must not exceed 255 characters")
+    private String name;
+    
+    @Size(max = 1000, message = "Query must not exceed 1000 characters")
+    private String query;
+    
+    @Size(max = 100, message = "Category must not exceed 100 characters")
+    private String category;
+    
+    @Size(max = 100, message = "Author must not exceed 100 characters")
+    private String author;
+    
+    @Size(max = 255, message = "Owner must not exceed 255 characters")
+    private String owner;
+    
+    // Constructors
+    public SavedSearchDto() {
+    }
+    
+    public SavedSearchDto(String name, String query, String category, String author, String owner) {
+        this.name = name;
+        this.query = query;
+        this.category = category;
+        this.author = author;
+        this.owner = owner;
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public void setName(String name) {
+        this.name = name;
+    }
+    
+    public String getQuery() {
+        return query;
+    }
+    
+    public void setQuery(String query) {
+        this.query = query;
+    }
+    
+    public String getCategory() {
+        return category;
+    }
+    
+    public void setCategory(String category) {
+        this.category = category;
+    }
+    
+    public String getAuthor() {
+        return author;
+    }
+    
+    public void setAuthor(String author) {
+        this.author = author;
+    }
+    
+    public String getOwner() {
+        return owner;
+    }
+    
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+}
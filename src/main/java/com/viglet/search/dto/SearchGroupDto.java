@@ -0,0 +1,45 @@
+package com.viglet.search.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class SearchGroupDto {
+    
+    private String key;
+    private long totalHits;
+    private List<SearchResultDto> results = new ArrayList<>();
+    
+    // Constructors
+    public SearchGroupDto() {
+    }
+    
+    public SearchGroupDto(String key, long totalHits) {
+        this.key = key;
+        this.totalHits = totalHits;
+    }
+    
+    // Getters and Setters
+    public String getKey() {
+        return key;
+    }
+    
+    public void setKey(String key) {
+        this.key = key;
+    }
+    
+    public long getTotalHits() {
+        return totalHits;
+    }
+    
+    public void setTotalHits(long totalHits) {
+        this.totalHits = totalHits;
+    }
+    
+    public List<SearchResultDto> getResults() {
+        return results;
+    }
+    
+    public void setResults(List<SearchResultDto> results) {
+        this.results = results;
+    }
+}
@@ -0,0 +1,215 @@
+package com.viglet.search.dto;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class SearchProfileDto {
+    
+    private String query;
+    private long totalNanos;
+    private long rewriteNanos;
+    private List<String> partitions = new ArrayList<>();
+    private Map<String, Long> phaseNanos = new LinkedHashMap<>();
+    private List<QueryProfile> queryProfile = new ArrayList<>();
+    private List<SegmentHits> segments = new ArrayList<>();
+    private List<HitExplanation> explanations = new ArrayList<>();
+    
+    // Getters and Setters
+    public String getQuery() {
+        return query;
+    }
+    
+    public void setQuery(String query) {
+        this.query = query;
+    }
+    
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+    
+    public void setTotalNanos(long totalNanos) {
+        this.totalNanos = totalNanos;
+    }
+    
+    public long getRewriteNanos() {
+        return rewriteNanos;
+    }
+    
+    public void setRewriteNanos(long rewriteNanos) {
+        this.rewriteNanos = rewriteNanos;
+    }
+    
+    public List<String> getPartitions() {
+        return partitions;
+    }
+    
+    public void setPartitions(List<String> partitions) {
+        this.partitions = partitions;
+    }
+    
+    public Map<String, Long> getPhaseNanos() {
+        return phaseNanos;
+    }
+    
+    public void setPhaseNanos(Map<String, Long> phaseNanos) {
+        this.phaseNanos = phaseNanos;
+    }
+    
+    public List<QueryProfile> getQueryProfile() {
+        return queryProfile;
+    }
+    
+    public void setQueryProfile(List<QueryProfile> queryProfile) {
+        this.queryProfile = queryProfile;
+    }
+    
+    public List<SegmentHits> getSegments() {
+        return segments;
+    }
+    
+    public void setSegments(List<SegmentHits> segments) {
+        this.segments = segments;
+    }
+    
+    public List<HitExplanation> getExplanations() {
+        return explanations;
+    }
+    
+    public void setExplanations(List<HitExplanation> explanations) {
+        this.explanations = explanations;
+    }
+    
+    /**
+     * Cost of one query node of the rewritten query, with the nodes of its clauses as children.
+     */
+    public static class QueryProfile {
+        
+        private String type;
+        private String description;
+        private long totalNanos;
+        private Map<String, Long> breakdown;
+        private List<QueryProfile> children = new ArrayList<>();
+        
+        public QueryProfile() {
+        }
+        
+        public QueryProfile(String type, String description, long totalNanos, Map<String, Long> breakdown) {
+            this.type = type;
+            this.description = description;
+            this.totalNanos = totalNanos;
+            this.breakdown = breakdown;
+        }
+        
+        public String getType() {
+            return type;
+        }
+        
+        public void setType(String type) {
+            this.type = type;
+        }
+        
+        public String getDescription() {
+            return description;
+        }
+        
+        public void setDescription(String description) {
+            this.description = description;
+        }
+        
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+        
+        public void setTotalNanos(long totalNanos) {
+            this.totalNanos = totalNanos;
+        }
+        
+        public Map<String, Long> getBreakdown() {
+            return breakdown;
+        }
+        
+        public void setBreakdown(Map<String, Long> breakdown) {
+            this.breakdown = breakdown;
+        }
+        
+        public List<QueryProfile> getChildren() {
+            return children;
+        }
+        
+        public void setChildren(List<QueryProfile> children) {
+            this.children = children;
+        }
+    }
+    
+    public static class SegmentHits {
+        
+        private int segment;
+        private int maxDoc;
+        private int hits;
+        
+        public SegmentHits() {
+        }
+        
+        public SegmentHits(int segment, int maxDoc, int hits) {
+            this.segment = segment;
+            this.maxDoc = maxDoc;
+            this.hits = hits;
+        }
+        
+        public int getSegment() {
+            return segment;
+        }
+        
+        public void setSegment(int segment) {
+            this.segment = segment;
+        }
+        
+        public int getMaxDoc() {
+            return maxDoc;
+        }
+        
+        public void setMaxDoc(int maxDoc) {
+            this.maxDoc = maxDoc;
+        }
+        
+        public int getHits() {
+            return hits;
+        }
+        
+        public void setHits(int hits) {
+            this.hits = hits;
+        }
+    }
+    
+    public static class HitExplanation {
+        
+        private Long id;
+        private String explanation;
+        
+        public HitExplanation() {
+        }
+        
+        public HitExplanation(Long id, String explanation) {
+            this.id = id;
+            this.explanation = explanation;
+        }
+        
+        public Long getId() {
+            return id;
+        }
+        
+        public void setId(Long id) {
+            this.id = id;
+        }
+        
+        public String getExplanation() {
+            return explanation;
+        }
+        
+        public void setExplanation(String explanation) {
+            this.explanation = explanation;
+        }
+    }
+}
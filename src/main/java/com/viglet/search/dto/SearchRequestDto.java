@@ -0,0 +1,110 @@
+package com.viglet.search.dto;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+public class SearchRequestDto {
+    
+    private String query;
+    private String category;
+    private String author;
+    private int maxResults = 50;
+    private String mode;
+    private LocalDateTime createdFrom;
+    private LocalDateTime createdTo;
+    
+    // Constructors
+    public SearchRequestDto() {
+    }
+    
+    public SearchRequestDto(String query, String category, String author, int maxResults, String mode) {
+        this.query = query;
+        this.category = category;
+        this.author = author;
+        this.maxResults = maxResults;
+        this.mode = mode;
+    }
+    
+    public SearchRequestDto(String query, String category, String author, int maxResults, String mode,
+                            LocalDateTime createdFrom, LocalDateTime createdTo) {
+        this(query, category, author, maxResults, mode);
+        this.createdFrom = createdFrom;
+        this.createdTo = createdTo;
+    }
+    
+    // Getters and Setters
+    public String getQuery() {
+        return query;
+    }
+    
+    public void setQuery(String query) {
+        this.query = query;
+    }
+    
+    public String getCategory() {
+        return category;
+    }
+    
+    public void setCategory(String category) {
+        this.category = category;
+    }
+    
+    public String getAuthor() {
+        return author;
+    }
+    
+    public void setAuthor(String author) {
+        this.author = author;
+    }
+    
+    public int getMaxResults() {
+        return maxResults;
+    }
+    
+    public void setMaxResults(int maxResults) {
+        this.maxResults = maxResults;
+    }
+    
+    public String getMode() {
+        return mode;
+    }
+    
+    public void setMode(String mode) {
+        this.mode = mode;
+    }
+    
+    public LocalDateTime getCreatedFrom() {
+        return createdFrom;
+    }
+    
+    public void setCreatedFrom(LocalDateTime createdFrom) {
+        this.createdFrom = createdFrom;
+    }
+    
+    public LocalDateTime getCreatedTo() {
+        return createdTo;
+    }
+    
+    public void setCreatedTo(LocalDateTime createdTo) {
+        this.createdTo = createdTo;
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SearchRequestDto that = (SearchRequestDto) o;
+        return maxResults == that.maxResults &&
+                Objects.equals(query, that.query) &&
+                Objects.equals(category, that.category) &&
+                Objects.equals(author, that.author) &&
+                Objects.equals(mode, that.mode) &&
+                Objects.equals(createdFrom, that.createdFrom) &&
+                Objects.equals(createdTo, that.createdTo);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(query, category, author, maxResults, mode, createdFrom, createdTo);
+    }
+}
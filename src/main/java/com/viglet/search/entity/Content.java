@@ -38,6 +38,15 @@ public class Content {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
     
+    // Search result clicks, indexed as the popularity ranking signal. Nullable so the column can be added
+    // to existing tables.
+    @Column(name = "click_count")
+    private Long clickCount;
+    
+    // The collection the content is indexed in; null for the default collection
+    @Size(max = 100, message = "Collection must not exceed 100 characters")
+    private String collection;
+    
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -126,6 +135,22 @@ public class Content {
         this.updatedAt = updatedAt;
     }
     
+    public Long getClickCount() {
+        return clickCount;
+    }
+    
+    public void setClickCount(Long clickCount) {
+        this.clickCount = clickCount;
+    }
+    
+    public String getCollection() {
+        return collection;
+    }
+    
+    public void setCollection(String collection) {
+        this.collection = collection;
+    }
+    
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,134 @@
+package com.viglet.search.entity;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+@Entity
+@Table(name = "saved_search")
+public class SavedSearch {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @NotBlank(message = "Name is required")
+    @Size(max = 255, message = "Name must not exceed 255 characters")
+    @Column(nullable = false)
+    private String name;
+    
+    @Size(max = 1000, message = "Query must not exceed 1000 characters")
+    @Column(length = 1000)
+    private String query;
+    
+    @Size(max = 100, message = "Category must not exceed 100 characters")
+    private String category;
+    
+    @Size(max = 100, message = "Author must not exceed 100 characters")
+    private String author;
+    
+    @Size(max = 255, message = "Owner must not exceed 255 characters")
+    private String owner;
+    
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+    
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+    
+    // Constructors
+    public SavedSearch() {
+    }
+    
+    public SavedSearch(String name, String query, String category, String author, String owner) {
+        this.name = name;
+        this.query = query;
+        this.category = category;
+        this.author = author;
+        this.owner = owner;
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public void setName(String name) {
+        this.name = name;
+    }
+    
+    public String getQuery() {
+        return query;
+    }
+    
+    public void setQuery(String query) {
+        this.query = query;
+    }
+    
+    public String getCategory() {
+        return category;
+    }
+    
+    public void setCategory(String category) {
+        this.category = category;
+    }
+    
+    public String getAuthor() {
+        return author;
+    }
+    
+    public void setAuthor(String author) {
+        this.author = author;
+    }
+    
+    public String getOwner() {
+        return owner;
+    }
+    
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SavedSearch savedSearch = (SavedSearch) o;
+        return Objects.equals(id, savedSearch.id);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
+    
+    @Override
+    public String toString() {
+        return "SavedSearch{" +
+                "id=" + id +
+                ", name='" + name + '\'' +
+                ", query='" + query + '\'' +
+                ", owner='" + owner + '\'' +
+                '}';
+    }
+}
@@ -1,11 +1,15 @@
 package com.viglet.search.repository;
 
 import com.viglet.search.entity.Content;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -17,13 +21,34 @@ public interface ContentRepository extends JpaRepository<Content, Long> {
     
     List<Content> findByTitleContainingIgnoreCase(String title);
     
+    List<Content> findByCollection(String collection);
+    
+    List<Content> findByCollectionIsNull();
+    
     @Query("SELECT c FROM Content c WHERE " +
+           "((:collection IS NULL AND c.collection IS NULL) OR c.collection = :collection) AND " +
            "(:category IS NULL OR c.category = :category) AND " +
            "(:author IS NULL OR c.author = :author) AND " +
            "(:query IS NULL OR LOWER(c.title) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
            "LOWER(c.body) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
            "LOWER(c.tags) LIKE LOWER(CONCAT('%', :query, '%')))")
-    List<Content> findByFilters(@Param("category") String category, 
+    List<Content> findByFilters(@Param("collection") String collection,
+                               @Param("category") String category, 
                                @Param("author") String author, 
                                @Param("query") String query);
+    
+    // Keyset pagination on (updatedAt, id): rows updated mid-scan move past the cursor instead of
+    // shifting later pages the way offset paging would. Only the default collection is synced.
+    @Query("SELECT c FROM Content c WHERE c.collection IS NULL AND " +
+           "(c.updatedAt > :since OR (c.updatedAt = :since AND c.id > :afterId)) " +
+           "ORDER BY c.updatedAt ASC, c.id ASC")
+    List<Content> findChangedSince(@Param("since") LocalDateTime since, 
+                                   @Param("afterId") Long afterId, 
+                                   Pageable pageable);
+    
+    // A bulk update, so @PreUpdate doesn't run and updatedAt (the recency signal) is left alone
+    @Modifying
+    @Transactional
+    @Query("UPDATE Content c SET c.clickCount = COALESCE(c.clickCount, 0) + :clicks WHERE c.id = :id")
+    int addClicks(@Param("id") Long id, @Param("clicks") long clicks);
 }
\ No newline at end of file
@@ -0,0 +1,89 @@
+package com.viglet.search.service;
+
+import com.viglet.search.entity.Content;
+import com.viglet.search.repository.ContentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Counts search result clicks, the source of the popularity ranking signal. Clicks are buffered in
+ * memory and flushed on a fixed delay, so a popular item costs one database update and one reindex per
+ * flush rather than per click. Clicks still buffered when the process dies are lost. Ids are not checked
+ * against the database until the flush, so the buffer is capped to keep unknown ids from growing it.
+ */
+@Service
+public class ClickTrackingService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ClickTrackingService.class);
+    
+    private final ContentRepository contentRepository;
+    private final CollectionRegistry collectionRegistry;
+    
+    private final Map<Long, Long> pendingClicks = new ConcurrentHashMap<>();
+    
+    @Value("${viglet.search.ranking.click.max-pending:10000}")
+    private int maxPending;
+    
+    @Autowired
+    public ClickTrackingService(ContentRepository contentRepository, CollectionRegistry collectionRegistry) {
+        this.contentRepository = contentRepository;
+        this.collectionRegistry = collectionRegistry;
+    }
+    
+    /**
+     * @return {@code false} if the click was dropped because {@code max-pending} items already wait for
+     *         the next flush
+     */
+    public boolean recordClick(Long contentId) {
+        // The size check races with other clicks, so the cap can be overshot by a few entries
+        if (pendingClicks.size() >= maxPending && !pendingClicks.containsKey(contentId)) {
+            return false;
+        }
+        pendingClicks.merge(contentId, 1L, Long::sum);
+        return true;
+    }
+    
+    /**
+     * @return the number of content items whose click count was updated
+     */
+    @Scheduled(fixedDelayString = "${viglet.search.ranking.click.flush-interval:PT30S}")
+    public synchronized int flush() throws IOException {
+        List<Long> updatedIds = new ArrayList<>();
+        for (Long contentId : pendingClicks.keySet()) {
+            // Removing atomically hands clicks recorded from now on to the next flush
+            Long clicks = pendingClicks.remove(contentId);
+            if (clicks != null && contentRepository.addClicks(contentId, clicks) > 0) {
+                updatedIds.add(contentId);
+            }
+        }
+        if (updatedIds.isEmpty()) {
+            return 0;
+        }
+        
+        List<Content> updated = contentRepository.findAllById(updatedIds);
+        Map<String, List<Content>> byCollection = updated.stream()
+                .collect(Collectors.groupingBy(CollectionRegistry::collectionOf));
+        for (Map.Entry<String, List<Content>> entry : byCollection.entrySet()) {
+            try {
+                collectionRegistry.write(entry.getKey(), service -> service.indexContents(entry.getValue()));
+            } catch (UnknownCollectionException e) {
+                // Rows of a collection removed from the configuration keep their counts in the database
+                logger.warn("Skipping click updates for {} content items: {}", entry.getValue().size(), 
+                        e.getMessage());
+            }
+        }
+        logger.debug("Flushed clicks for {} content items", updated.size());
+        return updated.size();
+    }
+}
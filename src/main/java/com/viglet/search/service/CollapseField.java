@@ -0,0 +1,26 @@
+package com.viglet.search.service;
+
+import java.util.Locale;
+
+public enum CollapseField {
+
+    /** One group of hits per author. */
+    AUTHOR,
+
+    /** One group of hits per category. */
+    CATEGORY;
+
+    /**
+     * @return the field to collapse on, or {@code null} if results should not be collapsed
+     */
+    public static CollapseField fromParam(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown collapse field: " + value);
+        }
+    }
+}
@@ -0,0 +1,429 @@
+package com.viglet.search.service;
+
+import com.viglet.search.config.LuceneConfig;
+import com.viglet.search.entity.Content;
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.regex.Pattern;
+
+/**
+ * The named content collections. Each has its own index directory, writer, searchers and analyzer, and
+ * its own caps on writer RAM and concurrent searches, so one busy collection can't starve the others.
+ * <p>
+ * The {@code default} collection is the index at {@code viglet.search.index.path}, served at
+ * {@code /api/content} and always open. Other collections are listed in
+ * {@code viglet.search.collections.names}, opened on first use and closed again once idle. Settings are
+ * read from {@code viglet.search.collections.<name>.*}, falling back to
+ * {@code viglet.search.collections.*}.
+ */
+@Service
+public class CollectionRegistry {
+    
+    public static final String DEFAULT = "default";
+    
+    private static final Logger logger = LoggerFactory.getLogger(CollectionRegistry.class);
+    
+    private static final String SETTINGS_PREFIX = "viglet.search.collections.";
+    private static final Pattern NAME = Pattern.compile("[a-z0-9][a-z0-9_-]*");
+    
+    private final LuceneConfig luceneConfig;
+    private final LuceneService defaultService;
+    private final EmbeddingProvider embeddingProvider;
+    private final ExecutorService searchExecutor;
+    private final AutowireCapableBeanFactory beanFactory;
+    private final Environment environment;
+    
+    private final Set<String> names = new LinkedHashSet<>();
+    // Guarded by this. An index is opened and closed outside the lock: a collection being opened is
+    // present with an incomplete future, and one being closed is in closing until its directory is free.
+    private final Map<String, CompletableFuture<Handle>> open = new HashMap<>();
+    private final Map<String, CompletableFuture<Void>> closing = new HashMap<>();
+    
+    @Value("${viglet.search.collections.path:./lucene-collections}")
+    private String collectionsPath;
+    
+    @Value("${viglet.search.collections.analyzer:standard}")
+    private String defaultAnalyzer;
+    
+    @Value("${viglet.search.collections.ram-buffer-mb:16}")
+    private double defaultRamBufferMb;
+    
+    @Value("${viglet.search.collections.max-concurrent-searches:16}")
+    private int defaultMaxConcurrentSearches;
+    
+    @Value("${viglet.search.collections.idle-timeout:PT10M}")
+    private Duration idleTimeout;
+    
+    @Autowired
+    public CollectionRegistry(LuceneConfig luceneConfig, LuceneService defaultService, 
+                              EmbeddingProvider embeddingProvider,
+                              @Qualifier("searchExecutor") ExecutorService searchExecutor,
+                              AutowireCapableBeanFactory beanFactory, Environment environment,
+                              @Value("${viglet.search.collections.names:}") List<String> names) {
+        this.luceneConfig = luceneConfig;
+        this.defaultService = defaultService;
+        this.embeddingProvider = embeddingProvider;
+        this.searchExecutor = searchExecutor;
+        this.beanFactory = beanFactory;
+        this.environment = environment;
+        
+        for (String name : names) {
+            String trimmed = name.trim();
+            if (trimmed.isEmpty() || trimmed.equals(DEFAULT)) {
+                continue;
+            }
+            if (!NAME.matcher(trimmed).matches()) {
+                throw new IllegalArgumentException("Invalid collection name: " + trimmed);
+            }
+            this.names.add(trimmed);
+        }
+        this.names.add(DEFAULT);
+    }
+    
+    /**
+     * @return the collection a content row belongs to
+     */
+    public static String collectionOf(Content content) {
+        return content.getCollection() != null ? content.getCollection() : DEFAULT;
+    }
+    
+    /**
+     * @return the value stored in {@code Content.collection} for a collection; {@code null} for the
+     * default collection, which also covers rows from before collections existed
+     */
+    public String storedName(String name) {
+        String resolved = resolve(name);
+        return resolved.equals(DEFAULT) ? null : resolved;
+    }
+    
+    /**
+     * Runs a search against a collection, opening it if needed. Fails fast with a
+     * {@link RejectedExecutionException} when the collection already runs its maximum number of searches,
+     * rather than holding a search thread that other collections could use.
+     */
+    public <T> T search(String name, SearchCall<T> call) throws IOException, ParseException {
+        Handle handle = lease(resolve(name));
+        try {
+            if (!handle.searches.tryAcquire()) {
+                throw new RejectedExecutionException("Collection " + handle.name 
+                        + " is running its maximum number of concurrent searches");
+            }
+            try {
+                return call.execute(handle.service);
+            } finally {
+                handle.searches.release();
+            }
+        } finally {
+            release(handle);
+        }
+    }
+    
+    /**
+     * Runs an index update against a collection, opening it if needed.
+     */
+    public void write(String name, WriteCall call) throws IOException {
+        Handle handle = lease(resolve(name));
+        try {
+            call.execute(handle.service);
+        } finally {
+            release(handle);
+        }
+    }
+    
+    /**
+     * Closes named collections that have not been used for {@code idle-timeout}. They are reopened on
+     * their next use.
+     */
+    @Scheduled(fixedDelayString = "${viglet.search.collections.idle-check-interval:PT1M}")
+    public void closeIdle() {
+        List<Handle> idle = new ArrayList<>();
+        long cutoff = System.nanoTime() - idleTimeout.toNanos();
+        synchronized (this) {
+            open.values().removeIf(opening -> {
+                Handle handle = opened(opening);
+                boolean isIdle = handle != null && handle.index != null && handle.leases == 0 
+                        && handle.lastUsed - cutoff < 0;
+                if (isIdle) {
+                    idle.add(handle);
+                    // Leases wait for the close, since reopening the directory before it would fail on its lock
+                    closing.put(handle.name, new CompletableFuture<>());
+                }
+                return isIdle;
+            });
+        }
+        for (Handle handle : idle) {
+            close(handle);
+            CompletableFuture<Void> closed;
+            synchronized (this) {
+                closed = closing.remove(handle.name);
+            }
+            closed.complete(null);
+            logger.info("Closed idle collection {}", handle.name);
+        }
+    }
+    
+    /**
+     * Freezes time partitions of the open named collections; the default collection does its own. Closed
+     * collections and those being opened or closed are skipped, and a rollover doesn't count as use, so it
+     * never keeps a collection from closing once idle.
+     */
+    @Scheduled(fixedDelayString = "${viglet.search.partition.rollover-interval:PT1H}")
+    public void rolloverPartitions() {
+        List<Handle> handles = new ArrayList<>();
+        synchronized (this) {
+            for (CompletableFuture<Handle> opening : open.values()) {
+                Handle handle = opened(opening);
+                if (handle != null && handle.index != null) {
+                    // Keeps closeIdle away until the rollover is done, without touching lastUsed
+                    handle.leases++;
+                    handles.add(handle);
+                }
+            }
+        }
+        for (Handle handle : handles) {
+            try {
+                handle.service.rolloverPartitions();
+            } catch (IOException e) {
+                logger.error("Failed to roll over partitions of collection {}", handle.name, e);
+            } finally {
+                synchronized (this) {
+                    handle.leases--;
+                }
+            }
+        }
+    }
+    
+    @PreDestroy
+    public void close() {
+        List<Handle> handles = new ArrayList<>();
+        synchronized (this) {
+            for (CompletableFuture<Handle> opening : open.values()) {
+                Handle handle = opened(opening);
+                if (handle != null) {
+                    handles.add(handle);
+                }
+            }
+            open.clear();
+        }
+        for (Handle handle : handles) {
+            if (handle.index != null) {
+                close(handle);
+            }
+        }
+    }
+    
+    private String resolve(String name) {
+        if (name == null) {
+            return DEFAULT;
+        }
+        if (!names.contains(name)) {
+            throw new UnknownCollectionException(name);
+        }
+        return name;
+    }
+    
+    /**
+     * @return whether the collection is open and not being closed
+     */
+    synchronized boolean isOpen(String name) {
+        return opened(open.get(resolve(name))) != null;
+    }
+    
+    private Handle lease(String name) throws IOException {
+        while (true) {
+            CompletableFuture<Void> closed;
+            CompletableFuture<Handle> opening;
+            boolean opener = false;
+            synchronized (this) {
+                closed = closing.get(name);
+                opening = open.get(name);
+                if (closed == null) {
+                    Handle handle = opened(opening);
+                    if (handle != null) {
+                        handle.leases++;
+                        return handle;
+                    }
+                    if (opening == null) {
+                        opening = new CompletableFuture<>();
+                        open.put(name, opening);
+                        opener = true;
+                    }
+                }
+            }
+            
+            if (closed != null) {
+                closed.join();
+            } else if (opener) {
+                try {
+                    opening.complete(open(name));
+                } catch (IOException | RuntimeException | Error e) {
+                    synchronized (this) {
+                        open.remove(name, opening);
+                    }
+                    opening.completeExceptionally(e);
+                    throw e;
+                }
+            } else {
+                awaitOpen(opening);
+            }
+            // Take the lease under the lock on the next pass; the collection may have been closed meanwhile
+        }
+    }
+    
+    private static Handle opened(CompletableFuture<Handle> opening) {
+        return opening != null && opening.isDone() && !opening.isCompletedExceptionally() ? opening.join() : null;
+    }
+    
+    private static void awaitOpen(CompletableFuture<Handle> opening) throws IOException {
+        try {
+            opening.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+    
+    private synchronized void release(Handle handle) {
+        handle.leases--;
+        handle.lastUsed = System.nanoTime();
+    }
+    
+    private Handle open(String name) throws IOException {
+        // Called without the registry lock, so opening one collection doesn't block the others
+        int maxSearches = setting(name, "max-concurrent-searches", Integer.class, defaultMaxConcurrentSearches);
+        Semaphore searches = new Semaphore(Math.max(1, maxSearches));
+        if (name.equals(DEFAULT)) {
+            // The default collection's index is a bean, opened and closed with the application context
+            defaultService.setSearchExecutor(new CollectionExecutor(searchExecutor, searches));
+            return new Handle(DEFAULT, null, defaultService, searches);
+        }
+        
+        long start = System.currentTimeMillis();
+        Analyzer analyzer = luceneConfig.createAnalyzer(setting(name, "analyzer", String.class, defaultAnalyzer));
+        PartitionedIndex index = luceneConfig.openIndex(Paths.get(collectionsPath).resolve(name), analyzer, 
+                setting(name, "ram-buffer-mb", Double.class, defaultRamBufferMb));
+        
+        LuceneService service = new LuceneService(index, analyzer, embeddingProvider, searchExecutor);
+        service.setSearchExecutor(new CollectionExecutor(searchExecutor, searches));
+        try {
+            // Not a bean, but it takes the same viglet.search.* settings as the default collection's service
+            beanFactory.autowireBean(service);
+            service.validateSettings();
+        } catch (IOException | RuntimeException e) {
+            index.close();
+            throw e;
+        }
+        
+        logger.info("Opened collection {} in {} ms", name, System.currentTimeMillis() - start);
+        return new Handle(name, index, service, searches);
+    }
+    
+    private void close(Handle handle) {
+        try {
+            handle.index.close();
+        } catch (IOException e) {
+            logger.error("Failed to close collection {}", handle.name, e);
+        }
+    }
+    
+    private <T> T setting(String name, String key, Class<T> type, T defaultValue) {
+        return environment.getProperty(SETTINGS_PREFIX + name + "." + key, type, defaultValue);
+    }
+    
+    @FunctionalInterface
+    public interface SearchCall<T> {
+        T execute(LuceneService service) throws IOException, ParseException;
+    }
+    
+    @FunctionalInterface
+    public interface WriteCall {
+        void execute(LuceneService service) throws IOException;
+    }
+    
+    /**
+     * Runs work a search hands off, such as multi-search fan-out, on the shared search executor only while
+     * the collection has a free search permit. Otherwise it rejects the task, and the search runs it on
+     * the thread that already holds a permit.
+     */
+    private static final class CollectionExecutor implements Executor {
+        
+        private final Executor searchExecutor;
+        private final Semaphore searches;
+        
+        private CollectionExecutor(Executor searchExecutor, Semaphore searches) {
+            this.searchExecutor = searchExecutor;
+            this.searches = searches;
+        }
+        
+        @Override
+        public void execute(Runnable task) {
+            if (!searches.tryAcquire()) {
+                throw new RejectedExecutionException("No free search permit");
+            }
+            try {
+                searchExecutor.execute(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        searches.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                searches.release();
+                throw e;
+            }
+        }
+    }
+    
+    private static final class Handle {
+        
+        private final String name;
+        // Null for the default collection, which the registry never closes
+        private final PartitionedIndex index;
+        private final LuceneService service;
+        private final Semaphore searches;
+        
+        // Guarded by the registry
+        private int leases;
+        private long lastUsed = System.nanoTime();
+        
+        private Handle(String name, PartitionedIndex index, LuceneService service, Semaphore searches) {
+            this.name = name;
+            this.index = index;
+            this.service = service;
+            this.searches = searches;
+        }
+    }
+}
@@ -1,51 +1,77 @@
 package com.viglet.search.service;
 
 import com.viglet.search.dto.ContentDto;
+import com.viglet.search.dto.MultiSearchResultDto;
+import com.viglet.search.dto.ProfiledSearchResultDto;
+import com.viglet.search.dto.SearchGroupDto;
+import com.viglet.search.dto.SearchRequestDto;
 import com.viglet.search.dto.SearchResultDto;
 import com.viglet.search.entity.Content;
 import com.viglet.search.repository.ContentRepository;
 import org.apache.lucene.queryparser.classic.ParseException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.io.IOException;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 
 @Service
 @Transactional
 public class ContentService {
     
     private final ContentRepository contentRepository;
-    private final LuceneService luceneService;
+    private final CollectionRegistry collectionRegistry;
+    private final SavedSearchMatcher savedSearchMatcher;
+    private final ExecutorService searchExecutor;
     
     @Autowired
-    public ContentService(ContentRepository contentRepository, LuceneService luceneService) {
+    public ContentService(ContentRepository contentRepository, CollectionRegistry collectionRegistry,
+                          SavedSearchMatcher savedSearchMatcher,
+                          @Qualifier("searchExecutor") ExecutorService searchExecutor) {
         this.contentRepository = contentRepository;
-        this.luceneService = luceneService;
+        this.collectionRegistry = collectionRegistry;
+        this.savedSearchMatcher = savedSearchMatcher;
+        this.searchExecutor = searchExecutor;
     }
     
-    public List<Content> findAll() {
-        return contentRepository.findAll();
+    public List<Content> findAll(String collection) {
+        String storedName = collectionRegistry.storedName(collection);
+        return storedName == null ? contentRepository.findByCollectionIsNull() 
+                : contentRepository.findByCollection(storedName);
     }
     
-    public Optional<Content> findById(Long id) {
-        return contentRepository.findById(id);
+    public Optional<Content> findById(String collection, Long id) {
+        String storedName = collectionRegistry.storedName(collection);
+        return contentRepository.findById(id)
+                .filter(content -> Objects.equals(content.getCollection(), storedName));
     }
     
-    public Content save(ContentDto contentDto) throws IOException {
+    public Content save(String collection, ContentDto contentDto) throws IOException {
         Content content = convertToEntity(contentDto);
+        content.setCollection(collectionRegistry.storedName(collection));
         Content savedContent = contentRepository.save(content);
         
         // Index in Lucene
-        luceneService.indexContent(savedContent);
+        collectionRegistry.write(collection, service -> service.indexContent(savedContent));
+        
+        // Notify saved searches matching the new content
+        matchSavedSearches(savedContent);
         
         return savedContent;
     }
     
-    public Content update(Long id, ContentDto contentDto) throws IOException {
-        Optional<Content> existingContent = contentRepository.findById(id);
+    public Content update(String collection, Long id, ContentDto contentDto) throws IOException {
+        Optional<Content> existingContent = findById(collection, id);
         if (existingContent.isEmpty()) {
             throw new RuntimeException("Content not found with id: " + id);
         }
@@ -55,13 +81,16 @@ public class ContentService {
         Content updatedContent = contentRepository.save(content);
         
         // Update in Lucene
-        luceneService.indexContent(updatedContent);
+        collectionRegistry.write(collection, service -> service.indexContent(updatedContent));
+        
+        // Notify saved searches matching the updated content
+        matchSavedSearches(updatedContent);
         
         return updatedContent;
     }
     
-    public void delete(Long id) throws IOException {
-        Optional<Content> content = contentRepository.findById(id);
+    public void delete(String collection, Long id) throws IOException {
+        Optional<Content> content = findById(collection, id);
         if (content.isEmpty()) {
             throw new RuntimeException("Content not found with id: " + id);
         }
@@ -70,22 +99,76 @@ public class ContentService {
         contentRepository.deleteById(id);
         
         // Delete from Lucene index
-        luceneService.deleteContent(id);
+        LocalDateTime createdAt = content.get().getCreatedAt();
+        collectionRegistry.write(collection, service -> service.deleteContent(id, createdAt));
+    }
+    
+    // Searches only read the index, so they must not hold a database connection while queued
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public CompletableFuture<List<SearchResultDto>> searchAsync(String collection, SearchRequestDto request) {
+        return submitSearch(collection, service -> service.search(request));
+    }
+    
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public CompletableFuture<ProfiledSearchResultDto> profileSearchAsync(String collection, SearchRequestDto request, 
+                                                                         int explainCount) {
+        return submitSearch(collection, service -> service.profileSearch(request, explainCount));
+    }
+    
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public CompletableFuture<List<SearchGroupDto>> groupedSearchAsync(String collection, SearchRequestDto request, 
+                                                                      CollapseField collapse, int groupSize) {
+        return submitSearch(collection, service -> service.groupedSearch(request, collapse, groupSize));
+    }
+    
+    /**
+     * @return the similar content, or an empty optional if the item does not exist in the collection
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public CompletableFuture<Optional<List<SearchResultDto>>> similarAsync(String collection, Long contentId, 
+                                                                           int maxResults) {
+        // The existence check runs on the search executor too, keeping the servlet thread free of I/O
+        return submitSearch(collection, service -> findById(collection, contentId).isEmpty() ? Optional.empty()
+                : Optional.of(service.similar(contentId, maxResults)));
+    }
+    
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public CompletableFuture<List<MultiSearchResultDto>> multiSearchAsync(String collection, 
+                                                                         List<SearchRequestDto> requests) {
+        return submitSearch(collection, service -> service.multiSearch(requests));
+    }
+    
+    private <T> CompletableFuture<T> submitSearch(String collection, CollectionRegistry.SearchCall<T> call) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return collectionRegistry.search(collection, call);
+                } catch (IOException | ParseException e) {
+                    throw new CompletionException(e);
+                }
+            }, searchExecutor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
     }
     
-    public List<SearchResultDto> search(String query, String category, String author, int maxResults) 
-            throws IOException, ParseException {
-        return luceneService.search(query, category, author, maxResults);
+    public List<Content> findByFilters(String collection, String category, String author, String query) {
+        return contentRepository.findByFilters(collectionRegistry.storedName(collection), category, author, query);
     }
     
-    public List<Content> findByFilters(String category, String author, String query) {
-        return contentRepository.findByFilters(category, author, query);
+    public void reindexAll(String collection) throws IOException {
+        List<Content> allContent = findAll(collection);
+        collectionRegistry.write(collection, service -> {
+            for (Content content : allContent) {
+                service.indexContent(content);
+            }
+        });
     }
     
-    public void reindexAll() throws IOException {
-        List<Content> allContent = contentRepository.findAll();
-        for (Content content : allContent) {
-            luceneService.indexContent(content);
+    private void matchSavedSearches(Content content) {
+        // Saved searches are parsed with the default collection's analyzer and only watch its content
+        if (content.getCollection() == null) {
+            savedSearchMatcher.match(content);
         }
     }
     
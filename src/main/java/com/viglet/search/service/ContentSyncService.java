@@ -0,0 +1,103 @@
+package com.viglet.search.service;
+
+import com.viglet.search.entity.Content;
+import com.viglet.search.repository.ContentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repairs drift between the database and the index by re-indexing rows whose {@code updatedAt} is past
+ * the watermark stored in the index commit. Runs at startup and on a fixed delay.
+ */
+@Service
+public class ContentSyncService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ContentSyncService.class);
+    
+    private static final LocalDateTime BEGINNING = LocalDateTime.of(1970, 1, 1, 0, 0);
+    
+    private final ContentRepository contentRepository;
+    private final LuceneService luceneService;
+    
+    @Value("${viglet.search.sync.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${viglet.search.sync.batch-size:500}")
+    private int batchSize;
+    
+    // updatedAt is stamped before the transaction commits, so a row can become visible with a timestamp
+    // slightly older than the watermark. Re-reading this window is cheap and catches those rows.
+    @Value("${viglet.search.sync.overlap:PT1M}")
+    private Duration overlap;
+    
+    @Autowired
+    public ContentSyncService(ContentRepository contentRepository, LuceneService luceneService) {
+        this.contentRepository = contentRepository;
+        this.luceneService = luceneService;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void syncAtStartup() throws IOException {
+        if (enabled) {
+            sync();
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${viglet.search.sync.interval:PT5M}", 
+               initialDelayString = "${viglet.search.sync.interval:PT5M}")
+    public void scheduledSync() throws IOException {
+        if (enabled) {
+            sync();
+        }
+    }
+    
+    /**
+     * @return the number of content rows re-indexed
+     */
+    public synchronized int sync() throws IOException {
+        long start = System.currentTimeMillis();
+        LocalDateTime watermark = luceneService.getSyncWatermark();
+        LocalDateTime since = watermark != null ? watermark.minus(overlap) : BEGINNING;
+        
+        int synced = 0;
+        LocalDateTime cursorUpdatedAt = since;
+        Long cursorId = 0L;
+        while (true) {
+            List<Content> batch = contentRepository.findChangedSince(cursorUpdatedAt, cursorId, 
+                    PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) {
+                break;
+            }
+            
+            Content last = batch.get(batch.size() - 1);
+            cursorUpdatedAt = last.getUpdatedAt();
+            cursorId = last.getId();
+            
+            // Never move the watermark backwards when only the overlap window was re-read
+            LocalDateTime batchWatermark = watermark != null && watermark.isAfter(cursorUpdatedAt) 
+                    ? watermark : cursorUpdatedAt;
+            luceneService.indexBatch(batch, batchWatermark);
+            synced += batch.size();
+            
+            if (batch.size() < batchSize) {
+                break;
+            }
+        }
+        
+        logger.info("Delta sync re-indexed {} content items since {} in {} ms", 
+                synced, since, System.currentTimeMillis() - start);
+        return synced;
+    }
+}
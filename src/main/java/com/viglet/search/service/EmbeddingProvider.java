@@ -0,0 +1,16 @@
+package com.viglet.search.service;
+
+/**
+ * Turns content text into a dense vector for kNN retrieval. Implementations must be thread safe and
+ * always return vectors of {@link #dimension()} length; the same text must produce the same vector
+ * both at index time and at query time.
+ */
+public interface EmbeddingProvider {
+
+    int dimension();
+
+    /**
+     * @return the embedding of the text, or {@code null} when the text has nothing to embed
+     */
+    float[] embed(String text);
+}
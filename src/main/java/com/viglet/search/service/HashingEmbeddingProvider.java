@@ -0,0 +1,78 @@
+package com.viglet.search.service;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Deterministic, dependency-free embedding based on feature hashing of analyzed tokens. It only
+ * captures lexical overlap, so it is meant for tests and local development; plug a real model in
+ * production by exposing another {@link EmbeddingProvider} bean.
+ */
+public class HashingEmbeddingProvider implements EmbeddingProvider {
+
+    private static final String FIELD = "embedding";
+
+    private final Analyzer analyzer;
+    private final int dimension;
+
+    public HashingEmbeddingProvider(Analyzer analyzer, int dimension) {
+        if (dimension <= 0) {
+            throw new IllegalArgumentException("Embedding dimension must be positive: " + dimension);
+        }
+        this.analyzer = analyzer;
+        this.dimension = dimension;
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    @Override
+    public float[] embed(String text) {
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+
+        float[] vector = new float[dimension];
+        try (TokenStream tokenStream = analyzer.tokenStream(FIELD, text)) {
+            CharTermAttribute term = tokenStream.addAttribute(CharTermAttribute.class);
+            tokenStream.reset();
+            while (tokenStream.incrementToken()) {
+                int hash = murmurMix(term.toString().hashCode());
+                int bucket = Math.floorMod(hash, dimension);
+                // Signed hashing keeps collisions from always adding up
+                vector[bucket] += (hash & 0x80000000) == 0 ? 1f : -1f;
+            }
+            tokenStream.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm == 0) {
+            return null;
+        }
+        float scale = (float) (1.0 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] *= scale;
+        }
+        return vector;
+    }
+
+    private static int murmurMix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+}
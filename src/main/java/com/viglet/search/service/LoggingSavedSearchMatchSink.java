@@ -0,0 +1,21 @@
+package com.viglet.search.service;
+
+import com.viglet.search.entity.Content;
+import com.viglet.search.entity.SavedSearch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+public class LoggingSavedSearchMatchSink implements SavedSearchMatchSink {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoggingSavedSearchMatchSink.class);
+
+    @Override
+    public void onMatch(Content content, List<SavedSearch> matches) {
+        for (SavedSearch savedSearch : matches) {
+            logger.info("Content {} matches saved search {} ({}) of {}",
+                    content.getId(), savedSearch.getId(), savedSearch.getName(), savedSearch.getOwner());
+        }
+    }
+}
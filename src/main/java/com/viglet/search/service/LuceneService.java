@@ -1,40 +1,78 @@
 package com.viglet.search.service;
 
+import com.viglet.search.dto.MultiSearchResultDto;
+import com.viglet.search.dto.ProfiledSearchResultDto;
+import com.viglet.search.dto.SearchGroupDto;
+import com.viglet.search.dto.SearchRequestDto;
 import com.viglet.search.dto.SearchResultDto;
 import com.viglet.search.entity.Content;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.FeatureField;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.KnnFloatVectorField;
+import org.apache.lucene.document.LongField;
 import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.SortedDocValuesField;
 import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
-import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.FieldInfos;
+import org.apache.lucene.index.StoredFields;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.index.VectorSimilarityFunction;
+import org.apache.lucene.queries.mlt.MoreLikeThis;
 import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
 import org.apache.lucene.queryparser.classic.ParseException;
 import org.apache.lucene.queryparser.classic.QueryParser;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.KnnFloatVectorQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
-import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.grouping.GroupDocs;
+import org.apache.lucene.search.grouping.GroupingSearch;
+import org.apache.lucene.search.grouping.TopGroups;
 import org.apache.lucene.search.highlight.Fragmenter;
 import org.apache.lucene.search.highlight.Highlighter;
 import org.apache.lucene.search.highlight.InvalidTokenOffsetsException;
 import org.apache.lucene.search.highlight.QueryScorer;
 import org.apache.lucene.search.highlight.SimpleHTMLFormatter;
 import org.apache.lucene.search.highlight.SimpleSpanFragmenter;
+import org.apache.lucene.search.join.BitSetProducer;
+import org.apache.lucene.search.join.ParentChildrenBlockJoinQuery;
+import org.apache.lucene.search.join.QueryBitSetProducer;
+import org.apache.lucene.search.join.ScoreMode;
+import org.apache.lucene.search.join.ToParentBlockJoinQuery;
+import org.apache.lucene.util.BytesRef;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 @Service
 public class LuceneService {
@@ -43,120 +81,826 @@ public class LuceneService {
     private static final String FIELD_TITLE = "title";
     private static final String FIELD_BODY = "body";
     private static final String FIELD_CATEGORY = "category";
+    private static final String FIELD_CATEGORY_GROUP = "categoryGroup";
     private static final String FIELD_AUTHOR = "author";
+    private static final String FIELD_AUTHOR_GROUP = "authorGroup";
     private static final String FIELD_TAGS = "tags";
     private static final String FIELD_CREATED_AT = "createdAt";
+    private static final String FIELD_CREATED_AT_MILLIS = "createdAtMillis";
     private static final String FIELD_UPDATED_AT = "updatedAt";
+    private static final String FIELD_UPDATED_AT_MILLIS = "updatedAtMillis";
+    private static final String FIELD_FEATURES = "features";
+    private static final String FIELD_EMBEDDING = "embedding";
+    private static final String FIELD_DOC_TYPE = "docType";
+    private static final String FIELD_PASSAGE = "passage";
+    private static final String FIELD_PASSAGE_COUNT = "passageCount";
     
-    private final IndexWriter indexWriter;
-    private final SearcherManager searcherManager;
+    private static final String DOC_TYPE_PARENT = "parent";
+    private static final String DOC_TYPE_PASSAGE = "passage";
+    
+    private static final String FEATURE_POPULARITY = "popularity";
+    
+    private static final String COMMIT_SYNC_WATERMARK = "viglet.sync.watermark";
+    
+    // Title, body and tags keep term vectors, so similar content is found without re-analyzing them
+    private static final FieldType TEXT_WITH_VECTORS = termVectorType(TextField.TYPE_STORED);
+    private static final FieldType TEXT_WITH_VECTORS_NOT_STORED = termVectorType(TextField.TYPE_NOT_STORED);
+    
+    // Immutable, so one instance serves every highlighter
+    private static final SimpleHTMLFormatter HIGHLIGHT_FORMATTER = new SimpleHTMLFormatter("<mark>", "</mark>");
+    
+    private final PartitionedIndex index;
     private final Analyzer analyzer;
+    private final EmbeddingProvider embeddingProvider;
+    // Multi-search fan-out and the kNN side of hybrid search; callers run a rejected task inline
+    private volatile Executor searchExecutor;
+    
+    @Value("${viglet.search.vector.enabled:false}")
+    private boolean vectorEnabled;
+    
+    @Value("${viglet.search.vector.num-candidates:100}")
+    private int vectorNumCandidates;
+    
+    @Value("${viglet.search.vector.rrf-k:60}")
+    private int rrfK;
+    
+    @Value("${viglet.search.msearch.max-requests:50}")
+    private int maxMultiSearchRequests;
+    
+    @Value("${viglet.search.passage.enabled:false}")
+    private boolean passageEnabled;
+    
+    @Value("${viglet.search.passage.threshold:32768}")
+    private int passageThreshold;
+    
+    @Value("${viglet.search.passage.size:2000}")
+    private int passageSize;
+    
+    @Value("${viglet.search.ranking.recency.weight:0}")
+    private float recencyWeight;
+    
+    @Value("${viglet.search.ranking.recency.pivot:P30D}")
+    private Duration recencyPivot;
+    
+    @Value("${viglet.search.ranking.popularity.weight:0}")
+    private float popularityWeight;
+    
+    @Value("${viglet.search.ranking.popularity.pivot:10}")
+    private float popularityPivot;
+    
+    @Value("${viglet.search.collapse.cache-mb:4}")
+    private double collapseCacheMb;
+    
+    @Value("${viglet.search.similar.term-vectors:false}")
+    private boolean similarTermVectors;
+    
+    @Value("${viglet.search.similar.max-query-terms:25}")
+    private int similarMaxQueryTerms;
+    
+    @Value("${viglet.search.similar.min-term-freq:1}")
+    private int similarMinTermFreq;
+    
+    @Value("${viglet.search.similar.min-doc-freq:2}")
+    private int similarMinDocFreq;
+    
+    @Value("${viglet.search.similar.cache-size:1000}")
+    private int similarCacheSize;
+    
+    private final SingleFlight<SearchRequestDto, List<SearchResultDto>> singleFlight = new SingleFlight<>();
+    
+    // Generated similar content queries by content id, least recently used first
+    private final Map<Long, SimilarQuery> similarQueries = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, SimilarQuery> eldest) {
+                    return size() > similarCacheSize;
+                }
+            });
+    
+    // Passages are indexed as a block of child documents followed by their content document
+    private final BitSetProducer parentsFilter = 
+            new QueryBitSetProducer(new TermQuery(new Term(FIELD_DOC_TYPE, DOC_TYPE_PARENT)));
     
     @Autowired
-    public LuceneService(IndexWriter indexWriter, SearcherManager searcherManager, Analyzer analyzer) {
-        this.indexWriter = indexWriter;
-        this.searcherManager = searcherManager;
+    public LuceneService(PartitionedIndex index, Analyzer analyzer, EmbeddingProvider embeddingProvider,
+                         @Qualifier("searchExecutor") ExecutorService searchExecutor) {
+        this.index = index;
         this.analyzer = analyzer;
+        this.embeddingProvider = embeddingProvider;
+        this.searchExecutor = searchExecutor;
+    }
+    
+    /**
+     * Replaces the executor for work a search hands off, so {@link CollectionRegistry} can charge it to the
+     * collection's concurrent search cap.
+     */
+    void setSearchExecutor(Executor searchExecutor) {
+        this.searchExecutor = searchExecutor;
+    }
+    
+    /**
+     * Rejects settings that would only fail once content is written. Collection services are not beans,
+     * so {@link CollectionRegistry} calls this itself after injecting their settings.
+     */
+    @PostConstruct
+    public void validateSettings() throws IOException {
+        if (passageEnabled && passageSize < 1) {
+            throw new IllegalArgumentException("viglet.search.passage.size must be at least 1, got " + passageSize);
+        }
+        
+        // Lucene refuses to write a field with different term vector options than the index already has
+        IndexSearcher searcher = index.acquire(null, null);
+        try {
+            FieldInfo title = FieldInfos.getMergedFieldInfos(searcher.getIndexReader()).fieldInfo(FIELD_TITLE);
+            if (title != null && title.hasVectors() != similarTermVectors) {
+                throw new IllegalStateException("The index was built with viglet.search.similar.term-vectors=" 
+                        + title.hasVectors() + " but the setting is " + similarTermVectors 
+                        + ". Restore the setting, or rebuild the index into an empty directory.");
+            }
+        } finally {
+            index.release(searcher);
+        }
     }
     
     public void indexContent(Content content) throws IOException {
-        Document document = createDocument(content);
+        writeContent(content);
+        index.commit();
+    }
+    
+    /**
+     * Indexes several content items with a single commit.
+     */
+    public void indexContents(List<Content> contents) throws IOException {
+        for (Content content : contents) {
+            writeContent(content);
+        }
+        index.commit();
+    }
+    
+    /**
+     * Indexes a batch of content with one commit that also records the sync watermark, so a crash
+     * either keeps the whole batch and its watermark or neither.
+     */
+    public void indexBatch(List<Content> contents, LocalDateTime syncWatermark) throws IOException {
+        for (Content content : contents) {
+            writeContent(content);
+        }
+        index.setCommitData(COMMIT_SYNC_WATERMARK, syncWatermark.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        index.commit();
+    }
+    
+    /**
+     * @return the {@code updatedAt} up to which the database has been synced, or {@code null} if never
+     */
+    public LocalDateTime getSyncWatermark() throws IOException {
+        LocalDateTime watermark = null;
+        for (String value : index.getCommitData(COMMIT_SYNC_WATERMARK)) {
+            LocalDateTime partitionWatermark = LocalDateTime.parse(value, DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+            if (watermark == null || partitionWatermark.isAfter(watermark)) {
+                watermark = partitionWatermark;
+            }
+        }
+        return watermark;
+    }
+    
+    /**
+     * @param createdAt the content's creation time, which locates its partition; {@code null} searches all
+     */
+    public void deleteContent(Long contentId, LocalDateTime createdAt) throws IOException {
+        index.deleteDocuments(createdAt, LongPoint.newExactQuery(FIELD_ID, contentId));
+        index.commit();
+    }
+    
+    /**
+     * Freezes time partitions that have left the hot window. Does nothing unless partitioning is enabled.
+     */
+    @Scheduled(fixedDelayString = "${viglet.search.partition.rollover-interval:PT1H}")
+    public void rolloverPartitions() throws IOException {
+        index.rollover();
+    }
+    
+    private void writeContent(Content content) throws IOException {
+        List<Document> documents = createDocuments(content);
         
-        // Update or add document (remove existing with same ID first)
+        // Update or add document (remove existing with same ID first). The id is only indexed as a
+        // point, so replace by query; the searcher sees both operations in the same commit.
         if (content.getId() != null) {
-            indexWriter.updateDocument(new Term(FIELD_ID, content.getId().toString()), document);
-        } else {
-            indexWriter.addDocument(document);
+            index.deleteDocuments(content.getCreatedAt(), LongPoint.newExactQuery(FIELD_ID, content.getId()));
+        }
+        index.addDocuments(content.getCreatedAt(), documents);
+    }
+    
+    public List<SearchResultDto> search(SearchRequestDto request) throws IOException, ParseException {
+        SearchRequestDto key = normalize(request);
+        
+        // Only the partitions overlapping the createdAt range are searched
+        IndexSearcher searcher = index.acquire(key.getCreatedFrom(), key.getCreatedTo());
+        
+        try {
+            FutureTask<List<SearchResultDto>> task = singleFlight.join(key, () -> search(searcher, key, null));
+            task.run();
+            return awaitSearch(task);
+        } finally {
+            index.release(searcher);
         }
-        indexWriter.commit();
-        searcherManager.maybeRefresh();
     }
     
-    public void deleteContent(Long contentId) throws IOException {
-        indexWriter.deleteDocuments(new Term(FIELD_ID, contentId.toString()));
-        indexWriter.commit();
-        searcherManager.maybeRefresh();
+    /**
+     * Runs a search with a per-phase timing breakdown, per-clause costs of the executed query, matches per
+     * segment and explanations of the top {@code explainCount} hits. Never coalesced with other searches.
+     */
+    public ProfiledSearchResultDto profileSearch(SearchRequestDto request, int explainCount) 
+            throws IOException, ParseException {
+        IndexSearcher searcher = index.acquire(request.getCreatedFrom(), request.getCreatedTo());
+        
+        try {
+            SearchProfiler profiler = new SearchProfiler(explainCount);
+            profiler.getProfile().setPartitions(index.partitionNames(searcher));
+            List<SearchResultDto> results = search(searcher, request, profiler);
+            return new ProfiledSearchResultDto(results, profiler.getProfile());
+        } finally {
+            index.release(searcher);
+        }
     }
     
-    public List<SearchResultDto> search(String query, String category, String author, int maxResults) 
+    /**
+     * Runs a lexical search and collapses the hits on an author or category: returns the best
+     * {@code maxResults} groups, each with its best {@code groupSize} hits. Groups are formed from doc
+     * values as hits are collected, and stored fields are only loaded for the hits returned.
+     */
+    public List<SearchGroupDto> groupedSearch(SearchRequestDto request, CollapseField collapse, int groupSize) 
             throws IOException, ParseException {
+        if (SearchMode.fromParam(request.getMode()) == SearchMode.HYBRID) {
+            throw new IllegalArgumentException("Collapsing is not supported for hybrid searches");
+        }
+        PreparedQuery prepared = prepareQuery(request);
+        if (prepared == null) {
+            return new ArrayList<>();
+        }
         
-        searcherManager.maybeRefresh();
-        IndexSearcher searcher = searcherManager.acquire();
+        IndexSearcher searcher = index.acquire(request.getCreatedFrom(), request.getCreatedTo());
         
         try {
-            BooleanQuery.Builder booleanQueryBuilder = new BooleanQuery.Builder();
+            GroupingSearch groupingSearch = new GroupingSearch(collapse == CollapseField.AUTHOR 
+                    ? FIELD_AUTHOR_GROUP : FIELD_CATEGORY_GROUP);
+            groupingSearch.setGroupDocsLimit(groupSize);
+            // The second pass replays the cached hits of the first instead of running the query again
+            groupingSearch.setCachingInMB(collapseCacheMb, true);
+            TopGroups<BytesRef> topGroups = groupingSearch.search(searcher, prepared.searchQuery(), 0, 
+                    request.getMaxResults());
             
-            // Add text search query if provided
-            if (query != null && !query.trim().isEmpty()) {
-                String[] fields = {FIELD_TITLE, FIELD_BODY, FIELD_TAGS};
-                MultiFieldQueryParser parser = new MultiFieldQueryParser(fields, analyzer);
-                Query textQuery = parser.parse(QueryParser.escape(query));
-                booleanQueryBuilder.add(textQuery, BooleanClause.Occur.MUST);
-            }
+            Highlighter highlighter = createHighlighter(prepared.finalQuery());
             
-            // Add category filter if provided
-            if (category != null && !category.trim().isEmpty()) {
-                Query categoryQuery = new TermQuery(new Term(FIELD_CATEGORY, category));
-                booleanQueryBuilder.add(categoryQuery, BooleanClause.Occur.MUST);
+            StoredFields storedFields = searcher.storedFields();
+            List<SearchGroupDto> groups = new ArrayList<>();
+            for (GroupDocs<BytesRef> groupDocs : topGroups.groups) {
+                // Content indexed before collapse keys existed falls in a group without a key
+                SearchGroupDto group = new SearchGroupDto(
+                        groupDocs.groupValue != null ? groupDocs.groupValue.utf8ToString() : null,
+                        groupDocs.totalHits.value);
+                for (ScoreDoc scoreDoc : groupDocs.scoreDocs) {
+                    Document doc = storedFields.document(scoreDoc.doc);
+                    String passage = null;
+                    if (prepared.passageQuery() != null && doc.getField(FIELD_PASSAGE_COUNT) != null) {
+                        passage = findBestPassage(searcher, prepared.passageQuery(), scoreDoc.doc);
+                    }
+                    group.getResults().add(createSearchResult(doc, scoreDoc.score, highlighter, passage));
+                }
+                groups.add(group);
             }
-            
-            // Add author filter if provided
-            if (author != null && !author.trim().isEmpty()) {
-                Query authorQuery = new TermQuery(new Term(FIELD_AUTHOR, author));
-                booleanQueryBuilder.add(authorQuery, BooleanClause.Occur.MUST);
-            }
-            
-            BooleanQuery finalQuery = booleanQueryBuilder.build();
-            
-            // If no conditions were added, return empty results
-            if (finalQuery.clauses().isEmpty()) {
-                return new ArrayList<>();
+            return groups;
+        } finally {
+            index.release(searcher);
+        }
+    }
+    
+    /**
+     * Finds content similar to an indexed item by its most distinctive title, body and tags terms. The
+     * terms are read from the item's term vectors when they are indexed, and the generated query is
+     * reused until the index changes. Items whose body is indexed as passages are compared by title and
+     * tags only.
+     * 
+     * @return the similar content, or an empty list if the item is not indexed
+     */
+    public List<SearchResultDto> similar(Long contentId, int maxResults) throws IOException {
+        IndexSearcher searcher = index.acquire(null, null);
+        
+        try {
+            long generation = index.generation(searcher);
+            SimilarQuery cached = similarQueries.get(contentId);
+            Query query;
+            if (cached != null && cached.generation() == generation) {
+                query = cached.query();
+            } else {
+                query = buildSimilarQuery(searcher, contentId);
+                if (query == null) {
+                    return new ArrayList<>();
+                }
+                similarQueries.put(contentId, new SimilarQuery(generation, query));
             }
             
-            TopDocs topDocs = searcher.search(finalQuery, maxResults);
-            
-            // Create highlighter
-            Highlighter highlighter = createHighlighter(finalQuery);
+            ScoreDoc[] scoreDocs = searcher.search(query, maxResults).scoreDocs;
+            Highlighter highlighter = createHighlighter(query);
             
+            StoredFields storedFields = searcher.storedFields();
             List<SearchResultDto> results = new ArrayList<>();
-            for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
-                Document doc = searcher.doc(scoreDoc.doc);
-                SearchResultDto result = createSearchResult(doc, scoreDoc.score, highlighter);
-                results.add(result);
+            for (ScoreDoc scoreDoc : scoreDocs) {
+                results.add(createSearchResult(storedFields.document(scoreDoc.doc), scoreDoc.score, highlighter, 
+                        null));
             }
-            
             return results;
         } finally {
-            searcherManager.release(searcher);
+            index.release(searcher);
+        }
+    }
+    
+    /**
+     * Runs several searches against one searcher snapshot. Distinct requests execute in parallel on the
+     * search executor, and requests identical to one already in flight share its execution. Failures are
+     * reported per request instead of failing the whole batch.
+     */
+    public List<MultiSearchResultDto> multiSearch(List<SearchRequestDto> requests) throws IOException {
+        if (requests.size() > maxMultiSearchRequests) {
+            throw new IllegalArgumentException("A multi-search accepts at most " + maxMultiSearchRequests 
+                    + " requests, got " + requests.size());
+        }
+        
+        // Requests may ask for different date ranges, so the snapshot spans every partition
+        IndexSearcher searcher = index.acquire(null, null);
+        
+        try {
+            List<FutureTask<List<SearchResultDto>>> tasks = new ArrayList<>(requests.size());
+            for (SearchRequestDto request : requests) {
+                SearchRequestDto key = normalize(request);
+                FutureTask<List<SearchResultDto>> task = singleFlight.join(key, () -> search(searcher, key, null));
+                tasks.add(task);
+                try {
+                    searchExecutor.execute(task);
+                } catch (RejectedExecutionException e) {
+                    // Runs inline below
+                }
+            }
+            
+            // Run anything the pool hasn't started yet on this thread, then collect in request order
+            List<MultiSearchResultDto> responses = new ArrayList<>(tasks.size());
+            for (FutureTask<List<SearchResultDto>> task : tasks) {
+                task.run();
+                responses.add(toMultiSearchResult(task));
+            }
+            return responses;
+        } finally {
+            index.release(searcher);
+        }
+    }
+    
+    private SearchRequestDto normalize(SearchRequestDto request) {
+        String mode = request.getMode();
+        try {
+            mode = SearchMode.fromParam(mode).name();
+        } catch (IllegalArgumentException e) {
+            // Keep the raw value; the search itself reports the error
+        }
+        return new SearchRequestDto(request.getQuery(), request.getCategory(), request.getAuthor(), 
+                request.getMaxResults(), mode, request.getCreatedFrom(), request.getCreatedTo());
+    }
+    
+    private MultiSearchResultDto toMultiSearchResult(FutureTask<List<SearchResultDto>> task) {
+        try {
+            return new MultiSearchResultDto(200, awaitSearch(task), null);
+        } catch (ParseException e) {
+            return new MultiSearchResultDto(400, null, "Invalid query syntax: " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return new MultiSearchResultDto(400, null, e.getMessage());
+        } catch (IOException e) {
+            return new MultiSearchResultDto(500, null, "Search error: " + e.getMessage());
+        }
+    }
+    
+    private List<SearchResultDto> awaitSearch(FutureTask<List<SearchResultDto>> task) 
+            throws IOException, ParseException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for search", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof ParseException parseException) {
+                throw parseException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException("Search failed", cause);
+        }
+    }
+    
+    private List<SearchResultDto> search(IndexSearcher searcher, SearchRequestDto request, SearchProfiler profiler) 
+            throws IOException, ParseException {
+        String query = request.getQuery();
+        int maxResults = request.getMaxResults();
+        SearchMode mode = SearchMode.fromParam(request.getMode());
+        
+        PreparedQuery prepared = prepareQuery(request);
+        // If no conditions were added, return empty results
+        if (prepared == null) {
+            return new ArrayList<>();
+        }
+        Query textQuery = prepared.textQuery();
+        BooleanQuery filterQuery = prepared.filterQuery();
+        BooleanQuery finalQuery = prepared.finalQuery();
+        Query passageQuery = prepared.passageQuery();
+        Query searchQuery = prepared.searchQuery();
+        
+        IndexSearcher lexicalSearcher = searcher;
+        if (profiler != null) {
+            profiler.phase("parse");
+            lexicalSearcher = profiler.profilingSearcher(searcher);
+        }
+        
+        ScoreDoc[] scoreDocs;
+        if (mode == SearchMode.HYBRID && textQuery != null) {
+            scoreDocs = hybridSearch(lexicalSearcher, searcher, searchQuery, query, filterQuery, maxResults);
+        } else {
+            scoreDocs = lexicalSearcher.search(searchQuery, maxResults).scoreDocs;
+        }
+        if (profiler != null) {
+            profiler.phase("search");
+        }
+        
+        // Create highlighter
+        Highlighter highlighter = createHighlighter(finalQuery);
+        
+        List<SearchResultDto> results = new ArrayList<>();
+        for (ScoreDoc scoreDoc : scoreDocs) {
+            Document doc = searcher.doc(scoreDoc.doc);
+            if (profiler != null) {
+                profiler.phase("storedFields");
+            }
+            String passage = null;
+            if (passageQuery != null && doc.getField(FIELD_PASSAGE_COUNT) != null) {
+                passage = findBestPassage(searcher, passageQuery, scoreDoc.doc);
+                if (profiler != null) {
+                    profiler.phase("passages");
+                }
+            }
+            SearchResultDto result = createSearchResult(doc, scoreDoc.score, highlighter, passage);
+            results.add(result);
+            if (profiler != null) {
+                profiler.phase("highlight");
+            }
+        }
+        
+        if (profiler != null) {
+            profiler.finish(searcher, searchQuery, scoreDocs, results);
+        }
+        return results;
+    }
+    
+    /**
+     * @return the queries a search request runs, or {@code null} if it has no conditions
+     */
+    private PreparedQuery prepareQuery(SearchRequestDto request) throws ParseException {
+        Query textQuery = buildTextQuery(request.getQuery());
+        BooleanQuery filterQuery = buildFilterQuery(request.getCategory(), request.getAuthor(), 
+                request.getCreatedFrom(), request.getCreatedTo());
+        BooleanQuery finalQuery = combine(textQuery, filterQuery);
+        if (finalQuery.clauses().isEmpty()) {
+            return null;
+        }
+        
+        // Large bodies are only searchable through their passages, so join matching passages to their parent
+        Query passageQuery = passageEnabled && textQuery != null ? buildPassageQuery(request.getQuery()) : null;
+        Query searchQuery = finalQuery;
+        if (passageQuery != null) {
+            BooleanQuery textOrPassage = new BooleanQuery.Builder()
+                    .add(textQuery, BooleanClause.Occur.SHOULD)
+                    .add(new ToParentBlockJoinQuery(passageQuery, parentsFilter, ScoreMode.Max), 
+                            BooleanClause.Occur.SHOULD)
+                    .build();
+            searchQuery = combine(textOrPassage, filterQuery);
+        }
+        searchQuery = addRankingSignals(searchQuery);
+        
+        return new PreparedQuery(textQuery, filterQuery, finalQuery, passageQuery, searchQuery);
+    }
+    
+    /**
+     * @return a query for content sharing the item's distinctive terms, or {@code null} if it is not indexed
+     */
+    private Query buildSimilarQuery(IndexSearcher searcher, Long contentId) throws IOException {
+        Query idQuery = LongPoint.newExactQuery(FIELD_ID, contentId);
+        TopDocs source = searcher.search(new BooleanQuery.Builder()
+                .add(idQuery, BooleanClause.Occur.FILTER)
+                .add(new TermQuery(new Term(FIELD_DOC_TYPE, DOC_TYPE_PARENT)), BooleanClause.Occur.FILTER)
+                .build(), 1);
+        if (source.scoreDocs.length == 0) {
+            return null;
+        }
+        
+        int sourceDoc = source.scoreDocs[0].doc;
+        // A passage-indexed body field is empty, and MoreLikeThis would re-analyze the stored body instead
+        boolean bodyInPassages = searcher.storedFields().document(sourceDoc, Set.of(FIELD_PASSAGE_COUNT))
+                .getField(FIELD_PASSAGE_COUNT) != null;
+        
+        MoreLikeThis moreLikeThis = new MoreLikeThis(searcher.getIndexReader());
+        moreLikeThis.setFieldNames(bodyInPassages ? new String[]{FIELD_TITLE, FIELD_TAGS} 
+                : new String[]{FIELD_TITLE, FIELD_BODY, FIELD_TAGS});
+        // Only used for fields without term vectors, such as those of documents indexed before they existed
+        moreLikeThis.setAnalyzer(analyzer);
+        moreLikeThis.setMaxQueryTerms(similarMaxQueryTerms);
+        moreLikeThis.setMinTermFreq(similarMinTermFreq);
+        moreLikeThis.setMinDocFreq(similarMinDocFreq);
+        moreLikeThis.setBoost(true);
+        
+        return new BooleanQuery.Builder()
+                .add(moreLikeThis.like(sourceDoc), BooleanClause.Occur.MUST)
+                .add(idQuery, BooleanClause.Occur.MUST_NOT)
+                .build();
+    }
+    
+    /**
+     * Builds the same query {@code /search} runs for these parameters; an empty query means nothing was given.
+     */
+    BooleanQuery buildQuery(String query, String category, String author) throws ParseException {
+        return combine(buildTextQuery(query), buildFilterQuery(category, author, null, null));
+    }
+    
+    /**
+     * Adds the recency and popularity signals to the score of every match. Both are clauses that report
+     * their maximum score, so top-k collection keeps skipping blocks of the query that can't make the cut,
+     * and neither makes a document match on its own.
+     */
+    Query addRankingSignals(Query query) {
+        List<Query> signals = new ArrayList<>(2);
+        // Each signal scores at most its weight
+        float maxSignalScore = 0;
+        if (recencyWeight > 0) {
+            // weight * pivot / (pivot + age): half the weight at an age of one pivot
+            signals.add(LongField.newDistanceFeatureQuery(FIELD_UPDATED_AT_MILLIS, recencyWeight, 
+                    toMillis(LocalDateTime.now()), Math.max(1, recencyPivot.toMillis())));
+            maxSignalScore += recencyWeight;
+        }
+        if (popularityWeight > 0) {
+            // weight * clicks / (clicks + pivot)
+            signals.add(FeatureField.newSaturationQuery(FIELD_FEATURES, FEATURE_POPULARITY, popularityWeight, 
+                    popularityPivot));
+            maxSignalScore += popularityWeight;
+        }
+        return signals.isEmpty() ? query : new RankingSignalsQuery(query, signals, maxSignalScore);
+    }
+    
+    private Query buildTextQuery(String query) throws ParseException {
+        if (query == null || query.trim().isEmpty()) {
+            return null;
+        }
+        String[] fields = {FIELD_TITLE, FIELD_BODY, FIELD_TAGS};
+        MultiFieldQueryParser parser = new MultiFieldQueryParser(fields, analyzer);
+        return parser.parse(QueryParser.escape(query));
+    }
+    
+    private Query buildPassageQuery(String query) throws ParseException {
+        return new QueryParser(FIELD_PASSAGE, analyzer).parse(QueryParser.escape(query));
+    }
+    
+    private String findBestPassage(IndexSearcher searcher, Query passageQuery, int parentDoc) throws IOException {
+        TopDocs topPassage = searcher.search(
+                new ParentChildrenBlockJoinQuery(parentsFilter, passageQuery, parentDoc), 1);
+        if (topPassage.scoreDocs.length == 0) {
+            return null;
+        }
+        return searcher.storedFields().document(topPassage.scoreDocs[0].doc).get(FIELD_PASSAGE);
+    }
+    
+    private BooleanQuery combine(Query textQuery, BooleanQuery filterQuery) {
+        BooleanQuery.Builder booleanQueryBuilder = new BooleanQuery.Builder();
+        
+        // Add text search query if provided
+        if (textQuery != null) {
+            booleanQueryBuilder.add(textQuery, BooleanClause.Occur.MUST);
+        }
+        for (BooleanClause clause : filterQuery.clauses()) {
+            booleanQueryBuilder.add(clause);
+        }
+        
+        return booleanQueryBuilder.build();
+    }
+    
+    private BooleanQuery buildFilterQuery(String category, String author, LocalDateTime createdFrom, 
+                                          LocalDateTime createdTo) {
+        BooleanQuery.Builder filterBuilder = new BooleanQuery.Builder();
+        
+        // Add category filter if provided
+        if (category != null && !category.trim().isEmpty()) {
+            Query categoryQuery = new TermQuery(new Term(FIELD_CATEGORY, category));
+            filterBuilder.add(categoryQuery, BooleanClause.Occur.MUST);
+        }
+        
+        // Add author filter if provided
+        if (author != null && !author.trim().isEmpty()) {
+            Query authorQuery = new TermQuery(new Term(FIELD_AUTHOR, author));
+            filterBuilder.add(authorQuery, BooleanClause.Occur.MUST);
+        }
+        
+        // Partitions only prune whole periods, so the range is always applied as well
+        if (createdFrom != null || createdTo != null) {
+            long from = createdFrom != null ? toMillis(createdFrom) : Long.MIN_VALUE;
+            long to = createdTo != null ? toMillis(createdTo) : Long.MAX_VALUE;
+            filterBuilder.add(LongField.newRangeQuery(FIELD_CREATED_AT_MILLIS, from, to), BooleanClause.Occur.FILTER);
+        }
+        
+        return filterBuilder.build();
+    }
+    
+    private ScoreDoc[] hybridSearch(IndexSearcher lexicalSearcher, IndexSearcher searcher, Query lexicalQuery, 
+                                    String query, BooleanQuery filterQuery, int maxResults) throws IOException {
+        if (!vectorEnabled) {
+            throw new IllegalArgumentException("Hybrid search requires viglet.search.vector.enabled=true");
+        }
+        
+        float[] queryVector = embeddingProvider.embed(query);
+        if (queryVector == null) {
+            return lexicalSearcher.search(lexicalQuery, maxResults).scoreDocs;
+        }
+        
+        int window = Math.max(maxResults, vectorNumCandidates);
+        Query knnQuery = new KnnFloatVectorQuery(FIELD_EMBEDDING, queryVector, window,
+                filterQuery.clauses().isEmpty() ? null : filterQuery);
+        
+        // Hand kNN to the executor and run the lexical side here. If no worker picks the kNN task up
+        // before the lexical side finishes, run() executes it inline, so a saturated pool can't deadlock.
+        FutureTask<TopDocs> knnTask = new FutureTask<>(() -> searcher.search(knnQuery, window));
+        try {
+            searchExecutor.execute(knnTask);
+        } catch (RejectedExecutionException e) {
+            // Fall through and run it on this thread
+        }
+        TopDocs lexicalTopDocs = lexicalSearcher.search(lexicalQuery, window);
+        knnTask.run();
+        
+        TopDocs knnTopDocs;
+        try {
+            knnTopDocs = knnTask.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for kNN search", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException("kNN search failed", e.getCause());
+        }
+        
+        return ReciprocalRankFusion.fuse(rrfK, maxResults, lexicalTopDocs, knnTopDocs);
+    }
+    
+    private List<Document> createDocuments(Content content) {
+        String body = content.getBody() != null ? content.getBody() : "";
+        List<String> passages = passageEnabled && body.length() > passageThreshold 
+                ? splitPassages(body, passageSize) : List.of();
+        
+        List<Document> documents = new ArrayList<>(passages.size() + 1);
+        for (String passage : passages) {
+            Document passageDocument = new Document();
+            if (content.getId() != null) {
+                // Lets deleting by id remove the whole block
+                passageDocument.add(new LongPoint(FIELD_ID, content.getId()));
+            }
+            passageDocument.add(new StringField(FIELD_DOC_TYPE, DOC_TYPE_PASSAGE, Field.Store.NO));
+            passageDocument.add(new TextField(FIELD_PASSAGE, passage, Field.Store.YES));
+            documents.add(passageDocument);
         }
+        
+        // The parent must come last in its block
+        documents.add(createDocument(content, passages));
+        return documents;
     }
     
-    private Document createDocument(Content content) {
+    private Document createDocument(Content content, List<String> passages) {
         Document document = new Document();
         
         if (content.getId() != null) {
             document.add(new StoredField(FIELD_ID, content.getId()));
             document.add(new LongPoint(FIELD_ID, content.getId()));
         }
+        document.add(new StringField(FIELD_DOC_TYPE, DOC_TYPE_PARENT, Field.Store.NO));
         
-        document.add(new TextField(FIELD_TITLE, content.getTitle() != null ? content.getTitle() : "", Field.Store.YES));
-        document.add(new TextField(FIELD_BODY, content.getBody() != null ? content.getBody() : "", Field.Store.YES));
-        document.add(new TextField(FIELD_CATEGORY, content.getCategory() != null ? content.getCategory() : "", Field.Store.YES));
-        document.add(new TextField(FIELD_AUTHOR, content.getAuthor() != null ? content.getAuthor() : "", Field.Store.YES));
-        document.add(new TextField(FIELD_TAGS, content.getTags() != null ? content.getTags() : "", Field.Store.YES));
+        addTextFields(document, content, !passages.isEmpty());
+        // Collapse keys, read from doc values while grouping hits
+        if (content.getAuthor() != null) {
+            document.add(new SortedDocValuesField(FIELD_AUTHOR_GROUP, new BytesRef(content.getAuthor())));
+        }
+        if (content.getCategory() != null) {
+            document.add(new SortedDocValuesField(FIELD_CATEGORY_GROUP, new BytesRef(content.getCategory())));
+        }
+        if (!passages.isEmpty()) {
+            document.add(new StoredField(FIELD_PASSAGE_COUNT, passages.size()));
+        }
+        
+        if (vectorEnabled) {
+            float[] embedding = embeddingProvider.embed(embeddingText(content));
+            if (embedding != null) {
+                document.add(new KnnFloatVectorField(FIELD_EMBEDDING, embedding, VectorSimilarityFunction.COSINE));
+            }
+        }
         
         if (content.getCreatedAt() != null) {
             document.add(new StoredField(FIELD_CREATED_AT, content.getCreatedAt().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)));
+            document.add(new LongField(FIELD_CREATED_AT_MILLIS, toMillis(content.getCreatedAt()), Field.Store.NO));
         }
         if (content.getUpdatedAt() != null) {
             document.add(new StoredField(FIELD_UPDATED_AT, content.getUpdatedAt().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)));
+            document.add(new LongField(FIELD_UPDATED_AT_MILLIS, toMillis(content.getUpdatedAt()), Field.Store.NO));
+        }
+        // Ranking signals are always indexed, so changing their weights needs no reindex
+        if (content.getClickCount() != null && content.getClickCount() > 0) {
+            document.add(new FeatureField(FIELD_FEATURES, FEATURE_POPULARITY, content.getClickCount()));
         }
         
         return document;
     }
     
-    private SearchResultDto createSearchResult(Document doc, float score, Highlighter highlighter) {
+    private static long toMillis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+    
+    /**
+     * Splits text into passages of about {@code passageSize} characters, breaking on whitespace when one
+     * falls in the second half of the passage.
+     */
+    static List<String> splitPassages(String text, int passageSize) {
+        if (passageSize < 1) {
+            throw new IllegalArgumentException("Passage size must be at least 1, got " + passageSize);
+        }
+        List<String> passages = new ArrayList<>();
+        int start = 0;
+        while (start < text.length()) {
+            int end = Math.min(start + passageSize, text.length());
+            if (end < text.length()) {
+                int boundary = end;
+                while (boundary > start + passageSize / 2 && !Character.isWhitespace(text.charAt(boundary))) {
+                    boundary--;
+                }
+                if (boundary > start + passageSize / 2) {
+                    end = boundary;
+                }
+            }
+            String passage = text.substring(start, end).strip();
+            if (!passage.isEmpty()) {
+                passages.add(passage);
+            }
+            start = end;
+        }
+        return passages;
+    }
+    
+    /**
+     * Builds a document with only the searchable text fields, for matching content outside the index.
+     */
+    Document createTextDocument(Content content) {
+        Document document = new Document();
+        addTextFields(document, content, false);
+        return document;
+    }
+    
+    private void addTextFields(Document document, Content content, boolean bodyInPassages) {
+        FieldType storedType = similarTermVectors ? TEXT_WITH_VECTORS : TextField.TYPE_STORED;
+        String body = content.getBody() != null ? content.getBody() : "";
+        document.add(new Field(FIELD_TITLE, content.getTitle() != null ? content.getTitle() : "", storedType));
+        if (!bodyInPassages) {
+            document.add(new Field(FIELD_BODY, body, storedType));
+        } else {
+            // The body is indexed through its passages; keep the field's schema and store it unanalyzed
+            document.add(new Field(FIELD_BODY, "",
+                    similarTermVectors ? TEXT_WITH_VECTORS_NOT_STORED : TextField.TYPE_NOT_STORED));
+            document.add(new StoredField(FIELD_BODY, body));
+        }
+        document.add(new TextField(FIELD_CATEGORY, content.getCategory() != null ? content.getCategory() : "", Field.Store.YES));
+        document.add(new TextField(FIELD_AUTHOR, content.getAuthor() != null ? content.getAuthor() : "", Field.Store.YES));
+        document.add(new Field(FIELD_TAGS, content.getTags() != null ? content.getTags() : "", storedType));
+    }
+    
+    private static FieldType termVectorType(FieldType base) {
+        FieldType type = new FieldType(base);
+        type.setStoreTermVectors(true);
+        type.freeze();
+        return type;
+    }
+    
+    private String embeddingText(Content content) {
+        StringBuilder text = new StringBuilder();
+        for (String part : new String[]{content.getTitle(), content.getBody(), content.getTags()}) {
+            if (part != null && !part.isEmpty()) {
+                text.append(part).append('\n');
+            }
+        }
+        return text.toString();
+    }
+    
+    private SearchResultDto createSearchResult(Document doc, float score, Highlighter highlighter, String passage) {
         SearchResultDto result = new SearchResultDto();
         
         String idStr = doc.get(FIELD_ID);
@@ -181,29 +925,40 @@ public class LuceneService {
             result.setUpdatedAt(LocalDateTime.parse(updatedAtStr, DateTimeFormatter.ISO_LOCAL_DATE_TIME));
         }
         
-        // Add highlighting
+        // Add highlighting; for passage-indexed content only the best matching passage, or failing that the
+        // leading passage, is analyzed rather than the whole body
+        String snippetSource = passage != null ? passage : result.getBody();
+        if (passage == null && doc.getField(FIELD_PASSAGE_COUNT) != null && snippetSource.length() > passageSize) {
+            snippetSource = snippetSource.substring(0, passageSize);
+        }
         try {
             String highlightedTitle = highlighter.getBestFragment(analyzer, FIELD_TITLE, result.getTitle());
-            String highlightedBody = highlighter.getBestFragment(analyzer, FIELD_BODY, result.getBody());
+            String highlightedBody = highlighter.getBestFragment(analyzer, FIELD_BODY, snippetSource);
             
             result.setHighlightedTitle(highlightedTitle != null ? highlightedTitle : result.getTitle());
             result.setHighlightedBody(highlightedBody != null ? highlightedBody : 
-                    (result.getBody().length() > 200 ? result.getBody().substring(0, 200) + "..." : result.getBody()));
+                    (snippetSource.length() > 200 ? snippetSource.substring(0, 200) + "..." : snippetSource));
         } catch (IOException | InvalidTokenOffsetsException e) {
             // Use original text if highlighting fails
             result.setHighlightedTitle(result.getTitle());
-            result.setHighlightedBody(result.getBody().length() > 200 ? result.getBody().substring(0, 200) + "..." : result.getBody());
+            result.setHighlightedBody(snippetSource.length() > 200 ? snippetSource.substring(0, 200) + "..." : snippetSource);
         }
         
         return result;
     }
     
     private Highlighter createHighlighter(Query query) {
-        SimpleHTMLFormatter formatter = new SimpleHTMLFormatter("<mark>", "</mark>");
         QueryScorer scorer = new QueryScorer(query);
-        Highlighter highlighter = new Highlighter(formatter, scorer);
+        Highlighter highlighter = new Highlighter(HIGHLIGHT_FORMATTER, scorer);
         Fragmenter fragmenter = new SimpleSpanFragmenter(scorer, 200);
         highlighter.setTextFragmenter(fragmenter);
         return highlighter;
     }
+    
+    private record PreparedQuery(Query textQuery, BooleanQuery filterQuery, BooleanQuery finalQuery, 
+                                 Query passageQuery, Query searchQuery) {
+    }
+    
+    private record SimilarQuery(long generation, Query query) {
+    }
 }
\ No newline at end of file
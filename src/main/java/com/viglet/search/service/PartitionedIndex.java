@@ -0,0 +1,505 @@
+package com.viglet.search.service;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.MultiReader;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * The content index, split into time partitions on {@code createdAt}. Each partition is a separate Lucene
+ * index in a subdirectory named after its period, e.g. {@code 2024-05}. The newest partitions are hot and
+ * keep an open writer; older ones are force-merged to a single segment and only opened for reading, so
+ * merges never rewrite them again. Searches see the partitions that overlap the requested date range
+ * through one {@link MultiReader}.
+ * <p>
+ * Without a period there is a single partition at the index path covering all time, which is the layout
+ * used before partitioning existed.
+ */
+public class PartitionedIndex implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PartitionedIndex.class);
+
+    private static final String UNPARTITIONED = "";
+
+    public enum Period {
+        DAY(ChronoUnit.DAYS, "yyyy-MM-dd"),
+        MONTH(ChronoUnit.MONTHS, "yyyy-MM"),
+        YEAR(ChronoUnit.YEARS, "yyyy");
+
+        private final ChronoUnit unit;
+        private final DateTimeFormatter format;
+
+        Period(ChronoUnit unit, String pattern) {
+            this.unit = unit;
+            this.format = DateTimeFormatter.ofPattern(pattern, Locale.ROOT);
+        }
+
+        public static Period fromParam(String value) {
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown partition period: " + value);
+            }
+        }
+
+        LocalDateTime start(LocalDateTime time) {
+            LocalDate date = time.toLocalDate();
+            switch (this) {
+                case YEAR:
+                    date = date.withDayOfYear(1);
+                    break;
+                case MONTH:
+                    date = date.withDayOfMonth(1);
+                    break;
+                default:
+                    break;
+            }
+            return date.atStartOfDay();
+        }
+
+        String partitionName(LocalDateTime start) {
+            return format.format(start);
+        }
+
+        /**
+         * @return the start of the period a directory name stands for, or {@code null} if it is not one
+         */
+        LocalDateTime parse(String name) {
+            try {
+                LocalDate date;
+                switch (this) {
+                    case YEAR:
+                        date = LocalDate.of(Integer.parseInt(name), 1, 1);
+                        break;
+                    case MONTH:
+                        date = LocalDate.parse(name + "-01");
+                        break;
+                    default:
+                        date = LocalDate.parse(name);
+                        break;
+                }
+                LocalDateTime start = date.atStartOfDay();
+                return name.equals(partitionName(start)) ? start : null;
+            } catch (NumberFormatException | DateTimeParseException e) {
+                return null;
+            }
+        }
+    }
+
+    private final Path root;
+    private final Period period;
+    private final int hotPartitions;
+    private final Supplier<IndexWriterConfig> writerConfig;
+
+    // Sorted by name, which for every period is also chronological
+    private final ConcurrentSkipListMap<String, Partition> partitions = new ConcurrentSkipListMap<>();
+
+    /**
+     * @param period        the span of one partition, or {@code null} for a single unpartitioned index
+     * @param hotPartitions how many of the most recent periods keep an open writer
+     * @param writerConfig  creates the config of each writer; a config can't be shared between writers
+     */
+    public PartitionedIndex(Path root, Period period, int hotPartitions, Supplier<IndexWriterConfig> writerConfig)
+            throws IOException {
+        this.root = root;
+        this.period = period;
+        this.hotPartitions = Math.max(1, hotPartitions);
+        this.writerConfig = writerConfig;
+
+        if (period == null) {
+            partitions.put(UNPARTITIONED, new Partition(UNPARTITIONED, root, null, null));
+            return;
+        }
+
+        Files.createDirectories(root);
+        try (DirectoryStream<Path> children = Files.newDirectoryStream(root, Files::isDirectory)) {
+            for (Path child : children) {
+                String name = child.getFileName().toString();
+                LocalDateTime start = period.parse(name);
+                if (start != null) {
+                    partitions.put(name, new Partition(name, child, start, start.plus(1, period.unit)));
+                }
+            }
+        }
+        logger.info("Opened {} index partitions under {}", partitions.size(), root);
+    }
+
+    public void addDocuments(LocalDateTime createdAt, List<Document> documents) throws IOException {
+        partitionFor(createdAt != null ? createdAt : LocalDateTime.now())
+                .write(writer -> writer.addDocuments(documents));
+    }
+
+    /**
+     * Deletes matching documents that were added with the given {@code createdAt}. Only the partition
+     * owning that time is written; the scan of every partition is only needed when {@code createdAt} is
+     * unknown or its partition does not exist.
+     */
+    public void deleteDocuments(LocalDateTime createdAt, Query query) throws IOException {
+        Partition partition = null;
+        if (period == null) {
+            partition = partitions.get(UNPARTITIONED);
+        } else if (createdAt != null) {
+            partition = partitions.get(period.partitionName(period.start(createdAt)));
+        }
+        if (partition == null) {
+            deleteDocuments(query);
+            return;
+        }
+        partition.write(writer -> writer.deleteDocuments(query));
+    }
+
+    /**
+     * Deletes matching documents from every partition. A cold partition is only reopened for writing if
+     * it actually holds a match.
+     */
+    public void deleteDocuments(Query query) throws IOException {
+        for (Partition partition : partitions.values()) {
+            if (partition.isWritable() || partition.count(query) > 0) {
+                partition.write(writer -> writer.deleteDocuments(query));
+            }
+        }
+    }
+
+    /**
+     * Stages a commit user data entry on the newest partition. Since {@link #commit()} commits in
+     * chronological order, it is durable only once every other partition's changes are.
+     */
+    public void setCommitData(String key, String value) throws IOException {
+        Partition newest = partitions.isEmpty() ? partitionFor(LocalDateTime.now()) : partitions.lastEntry().getValue();
+        newest.write(writer -> {
+            Map<String, String> commitData = new HashMap<>();
+            Iterable<Map.Entry<String, String>> liveCommitData = writer.getLiveCommitData();
+            if (liveCommitData != null) {
+                liveCommitData.forEach(entry -> commitData.put(entry.getKey(), entry.getValue()));
+            }
+            commitData.put(key, value);
+            writer.setLiveCommitData(commitData.entrySet());
+        });
+    }
+
+    /**
+     * @return the value each partition holds for a commit user data key, skipping partitions without one
+     */
+    public List<String> getCommitData(String key) throws IOException {
+        List<String> values = new ArrayList<>();
+        for (Partition partition : partitions.values()) {
+            String value = partition.commitData().get(key);
+            if (value != null) {
+                values.add(value);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Commits every partition with pending changes and makes them visible to new searchers.
+     */
+    public void commit() throws IOException {
+        for (Partition partition : partitions.values()) {
+            partition.commit();
+        }
+    }
+
+    /**
+     * Freezes partitions that have left the hot window: they are force-merged to one segment, committed
+     * and their writer closed. Also re-freezes cold partitions that were reopened for an update or delete.
+     */
+    public void rollover() throws IOException {
+        for (Partition partition : partitions.values()) {
+            if (!isHot(partition) && (partition.isWritable() || partition.segmentCount() > 1)) {
+                long start = System.currentTimeMillis();
+                partition.freeze();
+                logger.info("Froze index partition {} in {} ms", partition.name, System.currentTimeMillis() - start);
+            }
+        }
+    }
+
+    /**
+     * Acquires a searcher over the partitions that overlap {@code [from, to]}; either bound may be
+     * {@code null}. Must be given back with {@link #release(IndexSearcher)}.
+     */
+    public IndexSearcher acquire(LocalDateTime from, LocalDateTime to) throws IOException {
+        List<Partition> selected = new ArrayList<>();
+        for (Partition partition : partitions.values()) {
+            if (partition.overlaps(from, to)) {
+                selected.add(partition);
+            }
+        }
+
+        List<IndexSearcher> acquired = new ArrayList<>(selected.size());
+        try {
+            IndexReader[] readers = new IndexReader[selected.size()];
+            for (int i = 0; i < readers.length; i++) {
+                acquired.add(selected.get(i).searcherManager.acquire());
+                readers[i] = acquired.get(i).getIndexReader();
+            }
+            // The MultiReader holds its own reference to each partition reader until it is closed
+            IndexReader reader = readers.length == 1 ? readers[0] : new MultiReader(readers, false);
+            return new PartitionSearcher(reader, selected, acquired);
+        } catch (IOException | RuntimeException e) {
+            release(selected, acquired);
+            throw e;
+        }
+    }
+
+    public void release(IndexSearcher searcher) throws IOException {
+        PartitionSearcher partitionSearcher = (PartitionSearcher) searcher;
+        if (partitionSearcher.getIndexReader() instanceof MultiReader multiReader) {
+            multiReader.close();
+        }
+        release(partitionSearcher.partitions, partitionSearcher.acquired);
+    }
+
+    /**
+     * @return the names of the partitions a searcher from {@link #acquire} reads
+     */
+    public List<String> partitionNames(IndexSearcher searcher) {
+        return ((PartitionSearcher) searcher).partitions.stream().map(partition -> partition.name).toList();
+    }
+
+    /**
+     * @return the reader generation of a searcher from {@link #acquire}, which grows whenever a partition
+     * it reads is refreshed or a partition is added. Only comparable between searchers over the same range.
+     */
+    public long generation(IndexSearcher searcher) {
+        long generation = 0;
+        for (IndexSearcher acquired : ((PartitionSearcher) searcher).acquired) {
+            // Each partition's version only grows, so neither does their sum
+            generation += ((DirectoryReader) acquired.getIndexReader()).getVersion();
+        }
+        return generation;
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (Partition partition : partitions.values()) {
+            try {
+                partition.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static void release(List<Partition> partitions, List<IndexSearcher> acquired) throws IOException {
+        for (int i = 0; i < acquired.size(); i++) {
+            partitions.get(i).searcherManager.release(acquired.get(i));
+        }
+    }
+
+    private Partition partitionFor(LocalDateTime createdAt) throws IOException {
+        if (period == null) {
+            return partitions.get(UNPARTITIONED);
+        }
+        LocalDateTime start = period.start(createdAt);
+        String name = period.partitionName(start);
+        Partition partition = partitions.get(name);
+        if (partition != null) {
+            return partition;
+        }
+        synchronized (partitions) {
+            partition = partitions.get(name);
+            if (partition == null) {
+                partition = new Partition(name, root.resolve(name), start, start.plus(1, period.unit));
+                partitions.put(name, partition);
+                logger.info("Created index partition {}", name);
+            }
+            return partition;
+        }
+    }
+
+    private boolean isHot(Partition partition) {
+        if (period == null) {
+            return true;
+        }
+        LocalDateTime oldestHot = period.start(LocalDateTime.now()).minus(hotPartitions - 1, period.unit);
+        return !partition.start.isBefore(oldestHot);
+    }
+
+    @FunctionalInterface
+    private interface WriterOperation {
+        void apply(IndexWriter writer) throws IOException;
+    }
+
+    private final class Partition implements Closeable {
+
+        private final String name;
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+        private final Directory directory;
+        private final SearcherManager searcherManager;
+
+        // Writes share the read lock; freezing takes the write lock so no write sees the writer close
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        // Null while the partition is cold
+        private volatile IndexWriter writer;
+
+        private Partition(String name, Path path, LocalDateTime start, LocalDateTime end) throws IOException {
+            this.name = name;
+            this.start = start;
+            this.end = end;
+            this.directory = FSDirectory.open(path);
+            if (isHot(this) || !DirectoryReader.indexExists(directory)) {
+                // Ensure the index exists by committing the writer first
+                openWriter().commit();
+            }
+            this.searcherManager = new SearcherManager(directory, null);
+        }
+
+        private boolean isWritable() {
+            return writer != null;
+        }
+
+        private boolean overlaps(LocalDateTime from, LocalDateTime to) {
+            return (from == null || end == null || from.isBefore(end))
+                    && (to == null || start == null || !to.isBefore(start));
+        }
+
+        private void write(WriterOperation operation) throws IOException {
+            lock.readLock().lock();
+            try {
+                operation.apply(openWriter());
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        private synchronized IndexWriter openWriter() throws IOException {
+            if (writer == null) {
+                IndexWriterConfig config = writerConfig.get();
+                config.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+                writer = new IndexWriter(directory, config);
+            }
+            return writer;
+        }
+
+        private void commit() throws IOException {
+            lock.readLock().lock();
+            try {
+                IndexWriter current = writer;
+                if (current == null || !current.hasUncommittedChanges()) {
+                    return;
+                }
+                current.commit();
+            } finally {
+                lock.readLock().unlock();
+            }
+            searcherManager.maybeRefresh();
+        }
+
+        private void freeze() throws IOException {
+            lock.writeLock().lock();
+            try {
+                IndexWriter current = openWriter();
+                current.forceMerge(1);
+                current.commit();
+                current.close();
+                writer = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            searcherManager.maybeRefresh();
+        }
+
+        private int count(Query query) throws IOException {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                return searcher.count(query);
+            } finally {
+                searcherManager.release(searcher);
+            }
+        }
+
+        private int segmentCount() throws IOException {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                return searcher.getIndexReader().leaves().size();
+            } finally {
+                searcherManager.release(searcher);
+            }
+        }
+
+        private Map<String, String> commitData() throws IOException {
+            IndexWriter current = writer;
+            if (current != null) {
+                Map<String, String> commitData = new HashMap<>();
+                Iterable<Map.Entry<String, String>> liveCommitData = current.getLiveCommitData();
+                if (liveCommitData != null) {
+                    liveCommitData.forEach(entry -> commitData.put(entry.getKey(), entry.getValue()));
+                }
+                return commitData;
+            }
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                return ((DirectoryReader) searcher.getIndexReader()).getIndexCommit().getUserData();
+            } finally {
+                searcherManager.release(searcher);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            lock.writeLock().lock();
+            try {
+                if (writer != null) {
+                    writer.close();
+                    writer = null;
+                }
+                searcherManager.close();
+                directory.close();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private static final class PartitionSearcher extends IndexSearcher {
+
+        private final List<Partition> partitions;
+        private final List<IndexSearcher> acquired;
+
+        private PartitionSearcher(IndexReader reader, List<Partition> partitions, List<IndexSearcher> acquired) {
+            super(reader);
+            this.partitions = partitions;
+            this.acquired = acquired;
+        }
+    }
+}
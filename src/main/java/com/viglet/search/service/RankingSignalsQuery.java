@@ -0,0 +1,347 @@
+package com.viglet.search.service;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BulkScorer;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.Explanation;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.LeafCollector;
+import org.apache.lucene.search.Matches;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryVisitor;
+import org.apache.lucene.search.Scorable;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.TwoPhaseIterator;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.Bits;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Matches what the query matches and adds the scores of signal clauses, such as a feature saturation
+ * or distance feature query, that never produce matches of their own.
+ * <p>
+ * A required query with optional signal clauses does the same in a {@code BooleanQuery}, but in Lucene
+ * 9.9 it never passes the minimum competitive score to the required query, so every match is scored.
+ * Here the query gets the minimum competitive score less the signals' maximum score, which keeps
+ * block-max pruning in the query's own disjunction. The signals' maximum is given up front, so a segment
+ * only builds their scorers once one of its documents could be competitive.
+ */
+final class RankingSignalsQuery extends Query {
+
+    private final Query query;
+    private final List<Query> signals;
+    private final float maxSignalScore;
+
+    /**
+     * @param maxSignalScore the most the signals can add to a score together
+     */
+    RankingSignalsQuery(Query query, List<Query> signals, float maxSignalScore) {
+        this.query = Objects.requireNonNull(query);
+        this.signals = List.copyOf(signals);
+        this.maxSignalScore = maxSignalScore;
+    }
+
+    @Override
+    public Query rewrite(IndexSearcher searcher) throws IOException {
+        Query rewrittenQuery = query.rewrite(searcher);
+        List<Query> rewrittenSignals = new ArrayList<>(signals.size());
+        boolean changed = rewrittenQuery != query;
+        for (Query signal : signals) {
+            Query rewritten = signal.rewrite(searcher);
+            rewrittenSignals.add(rewritten);
+            changed |= rewritten != signal;
+        }
+        return changed ? new RankingSignalsQuery(rewrittenQuery, rewrittenSignals, maxSignalScore) : this;
+    }
+
+    @Override
+    public Weight createWeight(IndexSearcher searcher, ScoreMode scoreMode, float boost) throws IOException {
+        Weight queryWeight = searcher.createWeight(query, scoreMode, boost);
+        if (!scoreMode.needsScores() || signals.isEmpty()) {
+            return queryWeight;
+        }
+        List<Weight> signalWeights = new ArrayList<>(signals.size());
+        for (Query signal : signals) {
+            signalWeights.add(searcher.createWeight(signal, ScoreMode.COMPLETE, boost));
+        }
+        return new SignalsWeight(this, queryWeight, signalWeights, maxSignalScore * boost);
+    }
+
+    @Override
+    public void visit(QueryVisitor visitor) {
+        query.visit(visitor.getSubVisitor(BooleanClause.Occur.MUST, this));
+        QueryVisitor signalVisitor = visitor.getSubVisitor(BooleanClause.Occur.SHOULD, this);
+        for (Query signal : signals) {
+            signal.visit(signalVisitor);
+        }
+    }
+
+    @Override
+    public String toString(String field) {
+        StringBuilder builder = new StringBuilder("signals(").append(query.toString(field));
+        for (Query signal : signals) {
+            builder.append(" + ").append(signal.toString(field));
+        }
+        return builder.append(')').toString();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return sameClassAs(other) && query.equals(((RankingSignalsQuery) other).query)
+                && signals.equals(((RankingSignalsQuery) other).signals)
+                && Float.compare(maxSignalScore, ((RankingSignalsQuery) other).maxSignalScore) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(classHash(), query, signals, maxSignalScore);
+    }
+
+    private static final class SignalsWeight extends Weight {
+
+        private final Weight queryWeight;
+        private final List<Weight> signalWeights;
+        private final float maxSignalScore;
+
+        private SignalsWeight(Query parent, Weight queryWeight, List<Weight> signalWeights, float maxSignalScore) {
+            super(parent);
+            this.queryWeight = queryWeight;
+            this.signalWeights = signalWeights;
+            this.maxSignalScore = maxSignalScore;
+        }
+
+        @Override
+        public Explanation explain(LeafReaderContext context, int doc) throws IOException {
+            Explanation queryExplanation = queryWeight.explain(context, doc);
+            if (!queryExplanation.isMatch()) {
+                return queryExplanation;
+            }
+            List<Explanation> details = new ArrayList<>();
+            details.add(queryExplanation);
+            float score = queryExplanation.getValue().floatValue();
+            for (Weight signalWeight : signalWeights) {
+                Explanation signal = signalWeight.explain(context, doc);
+                if (signal.isMatch()) {
+                    details.add(signal);
+                    score += signal.getValue().floatValue();
+                }
+            }
+            return Explanation.match(score, "sum of query score and ranking signals:", details);
+        }
+
+        @Override
+        public Matches matches(LeafReaderContext context, int doc) throws IOException {
+            return queryWeight.matches(context, doc);
+        }
+
+        @Override
+        public Scorer scorer(LeafReaderContext context) throws IOException {
+            Scorer scorer = queryWeight.scorer(context);
+            return scorer == null ? null : new SignalsScorer(this, scorer, new Signals(signalWeights, context, maxSignalScore));
+        }
+
+        @Override
+        public BulkScorer bulkScorer(LeafReaderContext context) throws IOException {
+            // Keeps the query's own bulk scorer, e.g. the max-score one of a top-level disjunction
+            BulkScorer bulkScorer = queryWeight.bulkScorer(context);
+            if (bulkScorer == null) {
+                return null;
+            }
+            Signals signals = new Signals(signalWeights, context, maxSignalScore);
+            return new BulkScorer() {
+                @Override
+                public int score(LeafCollector collector, Bits acceptDocs, int min, int max) throws IOException {
+                    return bulkScorer.score(new SignalsCollector(collector, signals), acceptDocs, min, max);
+                }
+
+                @Override
+                public long cost() {
+                    return bulkScorer.cost();
+                }
+            };
+        }
+
+        @Override
+        public int count(LeafReaderContext context) throws IOException {
+            return queryWeight.count(context);
+        }
+
+        @Override
+        public boolean isCacheable(LeafReaderContext context) {
+            // Signals such as recency depend on the time the query was built
+            return false;
+        }
+    }
+
+    /**
+     * The signal scorers of one segment, built for the first competitive document and advanced to each
+     * scored document in turn.
+     */
+    private static final class Signals {
+
+        private final List<Weight> weights;
+        private final LeafReaderContext context;
+        private final Scorer[] scorers;
+        // Some scorers, such as the distance feature one, create a new iterator on every call
+        private final DocIdSetIterator[] iterators;
+        private final float maxScore;
+        private float queryMinScore;
+        private int lastDoc = Integer.MAX_VALUE;
+
+        private Signals(List<Weight> weights, LeafReaderContext context, float maxScore) {
+            this.weights = weights;
+            this.context = context;
+            this.scorers = new Scorer[weights.size()];
+            this.iterators = new DocIdSetIterator[weights.size()];
+            this.maxScore = maxScore;
+        }
+
+        /**
+         * @return the query score plus the signals, or just the query score if even the signals' maximum
+         * couldn't make the document competitive, as it is not collected either way
+         */
+        float addTo(int doc, float queryScore) throws IOException {
+            if (queryScore < queryMinScore) {
+                return queryScore;
+            }
+            if (doc < lastDoc) {
+                // The first competitive document, or documents scored out of order
+                for (int i = 0; i < scorers.length; i++) {
+                    scorers[i] = weights.get(i).scorer(context);
+                    iterators[i] = scorers[i] == null ? null : scorers[i].iterator();
+                }
+            }
+            lastDoc = doc;
+            float score = queryScore;
+            for (int i = 0; i < scorers.length; i++) {
+                DocIdSetIterator iterator = iterators[i];
+                if (iterator == null) {
+                    continue;
+                }
+                if (iterator.docID() < doc) {
+                    iterator.advance(doc);
+                }
+                if (iterator.docID() == doc) {
+                    score += scorers[i].score();
+                }
+            }
+            return score;
+        }
+
+        /**
+         * @return the score the query alone needs for its document to reach {@code minScore}
+         */
+        float setMinCompetitiveScore(float minScore) {
+            // Round down, so rounding in the sum can never prune a competitive document
+            double queryMin = (double) minScore - maxScore - Math.ulp(minScore);
+            queryMinScore = queryMin <= 0 ? 0 : Math.nextDown((float) queryMin);
+            return queryMinScore;
+        }
+    }
+
+    private static final class SignalsScorer extends Scorer {
+
+        private final Scorer scorer;
+        private final Signals signals;
+
+        private SignalsScorer(Weight weight, Scorer scorer, Signals signals) {
+            super(weight);
+            this.scorer = scorer;
+            this.signals = signals;
+        }
+
+        @Override
+        public int docID() {
+            return scorer.docID();
+        }
+
+        @Override
+        public DocIdSetIterator iterator() {
+            return scorer.iterator();
+        }
+
+        @Override
+        public TwoPhaseIterator twoPhaseIterator() {
+            return scorer.twoPhaseIterator();
+        }
+
+        @Override
+        public float score() throws IOException {
+            return signals.addTo(scorer.docID(), scorer.score());
+        }
+
+        @Override
+        public int advanceShallow(int target) throws IOException {
+            return scorer.advanceShallow(target);
+        }
+
+        @Override
+        public float getMaxScore(int upTo) throws IOException {
+            return scorer.getMaxScore(upTo) + signals.maxScore;
+        }
+
+        @Override
+        public void setMinCompetitiveScore(float minScore) throws IOException {
+            scorer.setMinCompetitiveScore(signals.setMinCompetitiveScore(minScore));
+        }
+
+        @Override
+        public List<ChildScorable> getChildren() {
+            return List.of(new ChildScorable(scorer, "MUST"));
+        }
+    }
+
+    private static final class SignalsCollector implements LeafCollector {
+
+        private final LeafCollector collector;
+        private final Signals signals;
+        private int doc = -1;
+
+        private SignalsCollector(LeafCollector collector, Signals signals) {
+            this.collector = collector;
+            this.signals = signals;
+        }
+
+        @Override
+        public void setScorer(Scorable scorer) throws IOException {
+            collector.setScorer(new Scorable() {
+                @Override
+                public float score() throws IOException {
+                    return signals.addTo(doc, scorer.score());
+                }
+
+                @Override
+                public int docID() {
+                    return doc;
+                }
+
+                @Override
+                public void setMinCompetitiveScore(float minScore) throws IOException {
+                    scorer.setMinCompetitiveScore(signals.setMinCompetitiveScore(minScore));
+                }
+            });
+        }
+
+        @Override
+        public void collect(int doc) throws IOException {
+            this.doc = doc;
+            collector.collect(doc);
+        }
+
+        @Override
+        public DocIdSetIterator competitiveIterator() throws IOException {
+            return collector.competitiveIterator();
+        }
+
+        @Override
+        public void finish() throws IOException {
+            collector.finish();
+        }
+    }
+}
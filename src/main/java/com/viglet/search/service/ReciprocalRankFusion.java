@@ -0,0 +1,35 @@
+package com.viglet.search.service;
+
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reciprocal rank fusion: each ranking contributes {@code 1 / (k + rank)} for every doc it returns, so
+ * results are merged by position alone and the incomparable BM25 and vector scores never mix.
+ */
+final class ReciprocalRankFusion {
+
+    private ReciprocalRankFusion() {
+    }
+
+    static ScoreDoc[] fuse(int k, int topN, TopDocs... rankings) {
+        Map<Integer, ScoreDoc> fused = new LinkedHashMap<>();
+        for (TopDocs ranking : rankings) {
+            ScoreDoc[] scoreDocs = ranking.scoreDocs;
+            for (int rank = 0; rank < scoreDocs.length; rank++) {
+                float contribution = 1f / (k + rank + 1);
+                fused.computeIfAbsent(scoreDocs[rank].doc, doc -> new ScoreDoc(doc, 0f)).score += contribution;
+            }
+        }
+
+        List<ScoreDoc> merged = new ArrayList<>(fused.values());
+        // Ties keep the order of first appearance, which favours the earlier ranking
+        merged.sort((a, b) -> Float.compare(b.score, a.score));
+        return merged.subList(0, Math.min(topN, merged.size())).toArray(new ScoreDoc[0]);
+    }
+}
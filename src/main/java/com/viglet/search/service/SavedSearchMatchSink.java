@@ -0,0 +1,15 @@
+package com.viglet.search.service;
+
+import com.viglet.search.entity.Content;
+import com.viglet.search.entity.SavedSearch;
+
+import java.util.List;
+
+/**
+ * Receives the saved searches matched by newly created or updated content. Called on the writing
+ * thread, so implementations that notify remote systems should hand the work off.
+ */
+public interface SavedSearchMatchSink {
+
+    void onMatch(Content content, List<SavedSearch> matches);
+}
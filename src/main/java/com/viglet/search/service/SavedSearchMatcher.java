@@ -0,0 +1,176 @@
+package com.viglet.search.service;
+
+import com.viglet.search.entity.Content;
+import com.viglet.search.entity.SavedSearch;
+import org.apache.lucene.monitor.MatchingQueries;
+import org.apache.lucene.monitor.Monitor;
+import org.apache.lucene.monitor.MonitorQuery;
+import org.apache.lucene.monitor.QueryMatch;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.Query;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Matches content against registered saved searches with a Lucene {@link Monitor}. The monitor's
+ * presearcher indexes the terms of every saved query, so each document only runs the few queries that
+ * share a term with it instead of all of them.
+ */
+@Service
+public class SavedSearchMatcher {
+    
+    private static final Logger logger = LoggerFactory.getLogger(SavedSearchMatcher.class);
+    
+    private final Monitor monitor;
+    private final LuceneService luceneService;
+    private final SavedSearchMatchSink sink;
+    private final Map<String, SavedSearch> savedSearches = new ConcurrentHashMap<>();
+    
+    @Autowired
+    public SavedSearchMatcher(Monitor monitor, LuceneService luceneService, SavedSearchMatchSink sink) {
+        this.monitor = monitor;
+        this.luceneService = luceneService;
+        this.sink = sink;
+    }
+    
+    /**
+     * Builds the query a saved search runs, rejecting saved searches without any condition.
+     */
+    public Query toQuery(SavedSearch savedSearch) throws ParseException {
+        BooleanQuery query = luceneService.buildQuery(savedSearch.getQuery(), savedSearch.getCategory(), 
+                savedSearch.getAuthor());
+        if (query.clauses().isEmpty()) {
+            throw new IllegalArgumentException("A saved search needs a query, category or author");
+        }
+        return query;
+    }
+    
+    /**
+     * Adds a saved search to the monitor. Inside a transaction this happens once it commits, so a
+     * rolled-back create never alerts.
+     */
+    public void register(SavedSearch savedSearch) throws IOException, ParseException {
+        MonitorQuery monitorQuery = new MonitorQuery(savedSearch.getId().toString(), toQuery(savedSearch));
+        updateAfterCommit(savedSearch.getId(), () -> {
+            monitor.register(monitorQuery);
+            savedSearches.put(monitorQuery.getId(), savedSearch);
+        });
+    }
+    
+    /**
+     * Registers saved searches in one batch; entries whose query no longer parses are skipped.
+     */
+    public void registerAll(Collection<SavedSearch> toRegister) throws IOException {
+        List<MonitorQuery> monitorQueries = new ArrayList<>(toRegister.size());
+        for (SavedSearch savedSearch : toRegister) {
+            try {
+                monitorQueries.add(new MonitorQuery(savedSearch.getId().toString(), toQuery(savedSearch)));
+                savedSearches.put(savedSearch.getId().toString(), savedSearch);
+            } catch (ParseException | IllegalArgumentException e) {
+                logger.warn("Skipping saved search {}: {}", savedSearch.getId(), e.getMessage());
+            }
+        }
+        monitor.register(monitorQueries);
+    }
+    
+    /**
+     * Removes a saved search from the monitor. Inside a transaction this happens once it commits, so a
+     * rolled-back delete keeps alerting.
+     */
+    public void unregister(Long savedSearchId) throws IOException {
+        updateAfterCommit(savedSearchId, () -> {
+            monitor.deleteById(savedSearchId.toString());
+            savedSearches.remove(savedSearchId.toString());
+        });
+    }
+    
+    public int size() {
+        return savedSearches.size();
+    }
+    
+    /**
+     * Finds the saved searches matching the content and hands them to the sink. Inside a transaction the
+     * sink is only called once it commits, so a rolled-back write never notifies. Matching failures are
+     * logged rather than thrown so alerting can never fail a write.
+     */
+    public List<SavedSearch> match(Content content) {
+        if (savedSearches.isEmpty()) {
+            return List.of();
+        }
+        
+        try {
+            MatchingQueries<QueryMatch> matchingQueries = 
+                    monitor.match(luceneService.createTextDocument(content), QueryMatch.SIMPLE_MATCHER);
+            
+            List<SavedSearch> matches = new ArrayList<>(matchingQueries.getMatchCount());
+            for (QueryMatch queryMatch : matchingQueries.getMatches()) {
+                SavedSearch savedSearch = savedSearches.get(queryMatch.getQueryId());
+                if (savedSearch != null) {
+                    matches.add(savedSearch);
+                }
+            }
+            
+            if (!matches.isEmpty()) {
+                notifyAfterCommit(content, matches);
+            }
+            return matches;
+        } catch (IOException | RuntimeException e) {
+            logger.error("Error matching content {} against saved searches", content.getId(), e);
+            return List.of();
+        }
+    }
+    
+    private void updateAfterCommit(Long savedSearchId, MonitorUpdate update) throws IOException {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            update.apply();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    update.apply();
+                } catch (IOException e) {
+                    logger.error("Error updating saved search {} in the monitor", savedSearchId, e);
+                }
+            }
+        });
+    }
+    
+    private void notifyAfterCommit(Content content, List<SavedSearch> matches) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            notifySink(content, matches);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                notifySink(content, matches);
+            }
+        });
+    }
+    
+    private void notifySink(Content content, List<SavedSearch> matches) {
+        try {
+            sink.onMatch(content, matches);
+        } catch (RuntimeException e) {
+            logger.error("Error notifying saved search matches for content {}", content.getId(), e);
+        }
+    }
+    
+    private interface MonitorUpdate {
+        void apply() throws IOException;
+    }
+}
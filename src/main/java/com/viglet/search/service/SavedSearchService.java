@@ -0,0 +1,74 @@
+package com.viglet.search.service;
+
+import com.viglet.search.dto.SavedSearchDto;
+import com.viglet.search.entity.SavedSearch;
+import com.viglet.search.repository.SavedSearchRepository;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+
+@Service
+@Transactional
+public class SavedSearchService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(SavedSearchService.class);
+    
+    private final SavedSearchRepository savedSearchRepository;
+    private final SavedSearchMatcher savedSearchMatcher;
+    
+    @Autowired
+    public SavedSearchService(SavedSearchRepository savedSearchRepository, SavedSearchMatcher savedSearchMatcher) {
+        this.savedSearchRepository = savedSearchRepository;
+        this.savedSearchMatcher = savedSearchMatcher;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void registerSavedSearches() throws IOException {
+        List<SavedSearch> savedSearches = savedSearchRepository.findAll();
+        savedSearchMatcher.registerAll(savedSearches);
+        logger.info("Registered {} saved searches for alerting", savedSearchMatcher.size());
+    }
+    
+    public List<SavedSearch> findAll() {
+        return savedSearchRepository.findAll();
+    }
+    
+    public List<SavedSearch> findByOwner(String owner) {
+        return savedSearchRepository.findByOwner(owner);
+    }
+    
+    public Optional<SavedSearch> findById(Long id) {
+        return savedSearchRepository.findById(id);
+    }
+    
+    public SavedSearch save(SavedSearchDto savedSearchDto) throws IOException, ParseException {
+        SavedSearch savedSearch = new SavedSearch(savedSearchDto.getName(), savedSearchDto.getQuery(),
+                savedSearchDto.getCategory(), savedSearchDto.getAuthor(), savedSearchDto.getOwner());
+        
+        // Validate before persisting so unparsable queries never reach the database
+        savedSearchMatcher.toQuery(savedSearch);
+        SavedSearch created = savedSearchRepository.save(savedSearch);
+        
+        savedSearchMatcher.register(created);
+        
+        return created;
+    }
+    
+    public void delete(Long id) throws IOException {
+        if (!savedSearchRepository.existsById(id)) {
+            throw new RuntimeException("Saved search not found with id: " + id);
+        }
+        
+        savedSearchRepository.deleteById(id);
+        savedSearchMatcher.unregister(id);
+    }
+}
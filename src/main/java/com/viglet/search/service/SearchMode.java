@@ -0,0 +1,23 @@
+package com.viglet.search.service;
+
+import java.util.Locale;
+
+public enum SearchMode {
+
+    /** BM25 over title, body and tags. */
+    LEXICAL,
+
+    /** Lexical and kNN retrieval run concurrently and fused with reciprocal rank fusion. */
+    HYBRID;
+
+    public static SearchMode fromParam(String value) {
+        if (value == null || value.isBlank()) {
+            return LEXICAL;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown search mode: " + value);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.viglet.search.service;
+
+import com.viglet.search.dto.SearchProfileDto;
+import com.viglet.search.dto.SearchResultDto;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.sandbox.search.QueryProfilerIndexSearcher;
+import org.apache.lucene.sandbox.search.QueryProfilerResult;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.LeafCollector;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Scorable;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.ScoreMode;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Collects the timing breakdown of a single profiled search. Only created when profiling is requested,
+ * so ordinary searches never pay for it.
+ */
+final class SearchProfiler {
+
+    private final SearchProfileDto profile = new SearchProfileDto();
+    private final int explainCount;
+    private final long start = System.nanoTime();
+    private long mark = start;
+    private QueryProfilerIndexSearcher profilingSearcher;
+
+    SearchProfiler(int explainCount) {
+        this.explainCount = explainCount;
+    }
+
+    SearchProfileDto getProfile() {
+        return profile;
+    }
+
+    /**
+     * Charges the time since the previous mark to the named phase; repeated phases accumulate.
+     */
+    void phase(String name) {
+        long now = System.nanoTime();
+        profile.getPhaseNanos().merge(name, now - mark, Long::sum);
+        mark = now;
+    }
+
+    /**
+     * @return a searcher over the same reader that records per-clause weight and scorer timings
+     */
+    IndexSearcher profilingSearcher(IndexSearcher searcher) {
+        profilingSearcher = new QueryProfilerIndexSearcher(searcher.getIndexReader());
+        profilingSearcher.setSimilarity(searcher.getSimilarity());
+        return profilingSearcher;
+    }
+
+    /**
+     * Completes the profile. Runs after the phases are timed, so the extra work done here for segment
+     * counts and explanations is not charged to the search.
+     */
+    void finish(IndexSearcher searcher, Query query, ScoreDoc[] scoreDocs, List<SearchResultDto> results)
+            throws IOException {
+        profile.setTotalNanos(System.nanoTime() - start);
+        profile.setQuery(query.toString());
+
+        if (profilingSearcher != null) {
+            profile.setRewriteNanos(profilingSearcher.getRewriteTime());
+            for (QueryProfilerResult result : profilingSearcher.getProfileResult()) {
+                profile.getQueryProfile().add(toQueryProfile(result));
+            }
+        }
+
+        List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+        SegmentHitCounter counter = new SegmentHitCounter(leaves.size());
+        searcher.search(query, counter);
+        for (LeafReaderContext leaf : leaves) {
+            profile.getSegments().add(new SearchProfileDto.SegmentHits(leaf.ord, leaf.reader().maxDoc(),
+                    counter.counts[leaf.ord]));
+        }
+
+        for (int i = 0; i < Math.min(explainCount, scoreDocs.length); i++) {
+            profile.getExplanations().add(new SearchProfileDto.HitExplanation(results.get(i).getId(),
+                    searcher.explain(query, scoreDocs[i].doc).toString()));
+        }
+    }
+
+    private static SearchProfileDto.QueryProfile toQueryProfile(QueryProfilerResult result) {
+        SearchProfileDto.QueryProfile queryProfile = new SearchProfileDto.QueryProfile(result.getQueryName(),
+                result.getDescription(), result.getTotalTime(), result.getTimeBreakdown());
+        for (QueryProfilerResult child : result.getProfiledChildren()) {
+            queryProfile.getChildren().add(toQueryProfile(child));
+        }
+        return queryProfile;
+    }
+
+    private static final class SegmentHitCounter implements Collector {
+
+        private final int[] counts;
+
+        private SegmentHitCounter(int segmentCount) {
+            this.counts = new int[segmentCount];
+        }
+
+        @Override
+        public LeafCollector getLeafCollector(LeafReaderContext context) {
+            int ord = context.ord;
+            return new LeafCollector() {
+                @Override
+                public void setScorer(Scorable scorer) {
+                }
+
+                @Override
+                public void collect(int doc) {
+                    counts[ord]++;
+                }
+            };
+        }
+
+        @Override
+        public ScoreMode scoreMode() {
+            return ScoreMode.COMPLETE_NO_SCORES;
+        }
+    }
+}
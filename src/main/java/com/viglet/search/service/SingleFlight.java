@@ -0,0 +1,28 @@
+package com.viglet.search.service;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Coalesces concurrent calls with equal keys into one execution. Callers get a shared task and should
+ * {@code run()} it before {@code get()}: whichever caller (or pool worker) gets there first executes it
+ * and the rest wait for that result. The key is released as soon as the task completes, so later calls
+ * execute again.
+ */
+final class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, FutureTask<V>> inFlight = new ConcurrentHashMap<>();
+
+    FutureTask<V> join(K key, Callable<V> callable) {
+        FutureTask<V> task = new FutureTask<>(callable) {
+            @Override
+            protected void done() {
+                inFlight.remove(key, this);
+            }
+        };
+        FutureTask<V> existing = inFlight.putIfAbsent(key, task);
+        return existing != null ? existing : task;
+    }
+}
@@ -0,0 +1,11 @@
+package com.viglet.search.service;
+
+/**
+ * Thrown when a request names a collection that is not configured.
+ */
+public class UnknownCollectionException extends RuntimeException {
+
+    public UnknownCollectionException(String name) {
+        super("Unknown collection: " + name);
+    }
+}
@@ -0,0 +1,84 @@
+package com.viglet.search.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-endpoint latency histograms and error counts, written as a fixed-layout text report so the reports
+ * of two releases can be compared with a plain diff.
+ */
+class LoadReport {
+
+    private static final long MAX_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(2);
+
+    private final Map<String, ConcurrentHistogram> histograms = new TreeMap<>();
+    private final Map<String, LongAdder> errors = new TreeMap<>();
+
+    LoadReport(Iterable<String> endpoints) {
+        for (String endpoint : endpoints) {
+            histograms.put(endpoint, new ConcurrentHistogram(MAX_TRACKABLE_NANOS, 3));
+            errors.put(endpoint, new LongAdder());
+        }
+    }
+
+    void record(String endpoint, long latencyNanos, boolean success) {
+        histograms.get(endpoint).recordValue(Math.min(latencyNanos, MAX_TRACKABLE_NANOS));
+        if (!success) {
+            errors.get(endpoint).increment();
+        }
+    }
+
+    void reset() {
+        histograms.values().forEach(Histogram::reset);
+        errors.values().forEach(LongAdder::reset);
+    }
+
+    long totalRequests() {
+        return histograms.values().stream().mapToLong(Histogram::getTotalCount).sum();
+    }
+
+    long totalErrors() {
+        return errors.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    String format(String header, double elapsedSeconds) {
+        StringBuilder report = new StringBuilder(header);
+        report.append(String.format(Locale.ROOT, "%-10s %9s %10s %7s %9s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "req/s", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+        Histogram all = new Histogram(MAX_TRACKABLE_NANOS, 3);
+        for (Map.Entry<String, ConcurrentHistogram> entry : histograms.entrySet()) {
+            Histogram histogram = entry.getValue();
+            all.add(histogram);
+            appendRow(report, entry.getKey(), histogram, errors.get(entry.getKey()).sum(), elapsedSeconds);
+        }
+        appendRow(report, "total", all, totalErrors(), elapsedSeconds);
+        return report.toString();
+    }
+
+    void write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+
+    private static void appendRow(StringBuilder report, String name, Histogram histogram, long errorCount,
+                                  double elapsedSeconds) {
+        long count = histogram.getTotalCount();
+        report.append(String.format(Locale.ROOT, "%-10s %9d %10.1f %7d %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                name, count, count / elapsedSeconds, errorCount,
+                millis(histogram, 50), millis(histogram, 90), millis(histogram, 99), millis(histogram, 99.9),
+                count == 0 ? 0 : histogram.getMaxValue() / 1e6));
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getTotalCount() == 0 ? 0 : histogram.getValueAtPercentile(percentile) / 1e6;
+    }
+}
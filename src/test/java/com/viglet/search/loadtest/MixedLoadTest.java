@@ -0,0 +1,271 @@
+package com.viglet.search.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.viglet.search.dto.ContentDto;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives a configurable mix of read and write requests against the embedded application, backed by a
+ * temporary index and an in-memory H2 database, and writes per-endpoint latency percentiles to
+ * {@code target/load-test/load-report.txt}. Run with {@code mvn test -Pload-test}; tune with system
+ * properties, e.g. {@code -Dload.duration=120 -Dload.concurrency=64 -Dload.mix=search=80,get=20}.
+ * Application properties can be overridden the same way to compare configurations.
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class MixedLoadTest {
+
+    private static final String DEFAULT_MIX =
+            "search=55,msearch=5,filter=10,get=15,create=6,update=6,delete=2.9,reindex=0.1";
+
+    @TempDir
+    static Path indexDirectory;
+
+    @LocalServerPort
+    private int port;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+    private final AtomicLong highestId = new AtomicLong();
+
+    @DynamicPropertySource
+    static void loadTestProperties(DynamicPropertyRegistry registry) {
+        registry.add("viglet.search.index.path", () -> indexDirectory.resolve("index").toString());
+        registry.add("spring.datasource.url", () -> "jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1");
+        registry.add("viglet.search.sync.enabled", () -> "false");
+        registry.add("logging.level.com.viglet.search", () -> "WARN");
+    }
+
+    @Test
+    void mixedReadWriteLoad() throws Exception {
+        int corpusSize = Integer.getInteger("load.corpus", 1000);
+        int concurrency = Integer.getInteger("load.concurrency", 16);
+        int warmupSeconds = Integer.getInteger("load.warmup", 10);
+        int durationSeconds = Integer.getInteger("load.duration", 30);
+        long seed = Long.getLong("load.seed", 42L);
+        Map<String, Double> mix = parseMix(System.getProperty("load.mix", DEFAULT_MIX));
+
+        SyntheticCorpus corpus = new SyntheticCorpus(20_000, 200);
+        seed(corpus, corpusSize, concurrency, seed);
+
+        LoadReport report = new LoadReport(mix.keySet());
+        run(corpus, mix, report, concurrency, warmupSeconds, seed + 1);
+        report.reset();
+        long start = System.nanoTime();
+        run(corpus, mix, report, concurrency, durationSeconds, seed + 2);
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        String header = String.format(Locale.ROOT,
+                "# Mixed load test, %s%n# corpus=%d concurrency=%d warmup=%ds duration=%ds seed=%d java=%s%n"
+                        + "# mix=%s%n",
+                Instant.now(), corpusSize, concurrency, warmupSeconds, durationSeconds, seed,
+                Runtime.version(), mix);
+        String formatted = report.format(header, elapsedSeconds);
+        Path reportFile = Paths.get(System.getProperty("load.report", "target/load-test/load-report.txt"));
+        report.write(reportFile, formatted);
+        System.out.print(formatted);
+
+        assertTrue(report.totalRequests() > 0, "No requests completed");
+    }
+
+    private void seed(SyntheticCorpus corpus, int corpusSize, int concurrency, long seed) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < corpusSize; i++) {
+                Random random = new Random(seed + i);
+                futures.add(executor.submit(() -> {
+                    create(corpus.content(random));
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private void run(SyntheticCorpus corpus, Map<String, Double> mix, LoadReport report, int concurrency,
+                     int seconds, long seed) throws Exception {
+        if (seconds <= 0) {
+            return;
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int worker = 0; worker < concurrency; worker++) {
+                Random random = new Random(seed * 31 + worker);
+                workers.add(executor.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        String endpoint = pick(mix, random);
+                        long requestStart = System.nanoTime();
+                        boolean success;
+                        try {
+                            success = execute(endpoint, corpus, random);
+                        } catch (IOException e) {
+                            success = false;
+                        }
+                        report.record(endpoint, System.nanoTime() - requestStart, success);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private boolean execute(String endpoint, SyntheticCorpus corpus, Random random)
+            throws IOException, InterruptedException {
+        switch (endpoint) {
+            case "search": {
+                StringBuilder uri = new StringBuilder("/api/content/search?maxResults=20&query=")
+                        .append(encode(corpus.query(random)));
+                if (random.nextInt(4) == 0) {
+                    uri.append("&category=").append(encode(corpus.category(random)));
+                }
+                return isSuccess(send(get(uri.toString())), false);
+            }
+            case "msearch": {
+                List<Map<String, Object>> requests = new ArrayList<>();
+                for (int i = 0; i < 10; i++) {
+                    requests.add(Map.of("query", corpus.query(random), "maxResults", 10));
+                }
+                return isSuccess(send(post("/api/content/msearch", requests)), false);
+            }
+            case "filter":
+                return isSuccess(send(get("/api/content/filter?category=" + encode(corpus.category(random))
+                        + "&author=" + encode(corpus.author(random)))), false);
+            case "get":
+                return isSuccess(send(get("/api/content/" + randomId(random))), true);
+            case "create":
+                return create(corpus.content(random));
+            case "update":
+                return isSuccess(send(HttpRequest.newBuilder(uri("/api/content/" + randomId(random)))
+                        .header("Content-Type", "application/json")
+                        .PUT(HttpRequest.BodyPublishers.ofString(json(corpus.content(random))))
+                        .build()), true);
+            case "delete":
+                return isSuccess(send(HttpRequest.newBuilder(uri("/api/content/" + randomId(random)))
+                        .DELETE()
+                        .build()), true);
+            case "reindex":
+                return isSuccess(send(post("/api/content/reindex", null)), false);
+            default:
+                throw new IllegalArgumentException("Unknown endpoint in load.mix: " + endpoint);
+        }
+    }
+
+    private boolean create(ContentDto content) throws IOException, InterruptedException {
+        HttpResponse<String> response = send(post("/api/content", content));
+        if (response.statusCode() != 201) {
+            return false;
+        }
+        long id = objectMapper.readTree(response.body()).get("id").asLong();
+        highestId.accumulateAndGet(id, Math::max);
+        return true;
+    }
+
+    private long randomId(Random random) {
+        return 1 + (long) (random.nextDouble() * Math.max(1, highestId.get()));
+    }
+
+    private static boolean isSuccess(HttpResponse<String> response, boolean notFoundIsExpected) {
+        int status = response.statusCode();
+        // Deleted ids are picked too, so a 404 is a normal outcome for id-based requests
+        return (status >= 200 && status < 300) || (notFoundIsExpected && status == 404);
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(uri(path)).GET().build();
+    }
+
+    private HttpRequest post(String path, Object body) throws IOException {
+        return HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/json")
+                .POST(body == null ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(json(body)))
+                .build();
+    }
+
+    private String json(Object body) throws IOException {
+        return objectMapper.writeValueAsString(body);
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static String pick(Map<String, Double> mix, Random random) {
+        double total = mix.values().stream().mapToDouble(Double::doubleValue).sum();
+        double target = random.nextDouble() * total;
+        String last = null;
+        for (Map.Entry<String, Double> entry : mix.entrySet()) {
+            last = entry.getKey();
+            target -= entry.getValue();
+            if (target < 0) {
+                return last;
+            }
+        }
+        return last;
+    }
+
+    private static Map<String, Double> parseMix(String mix) {
+        Map<String, Double> weights = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split("=");
+            double weight = Double.parseDouble(parts[1].trim());
+            if (weight > 0) {
+                weights.put(parts[0].trim(), weight);
+            }
+        }
+        return weights;
+    }
+}
@@ -0,0 +1,100 @@
+package com.viglet.search.loadtest;
+
+import com.viglet.search.dto.ContentDto;
+
+import java.util.Random;
+
+/**
+ * Generates reproducible content and queries. Words follow a Zipf-like distribution so that, as in real
+ * text, a few terms are very common and most are rare, which keeps postings lengths realistic.
+ */
+class SyntheticCorpus {
+
+    private static final String[] CATEGORIES = {"Technology", "Science", "Business", "Health", "Sports", "Culture"};
+
+    private final String[] vocabulary;
+    private final double[] cumulativeWeights;
+    private final String[] authors;
+
+    SyntheticCorpus(int vocabularySize, int authorCount) {
+        vocabulary = new String[vocabularySize];
+        cumulativeWeights = new double[vocabularySize];
+        double total = 0;
+        for (int i = 0; i < vocabularySize; i++) {
+            vocabulary[i] = word(i);
+            total += 1.0 / (i + 1);
+            cumulativeWeights[i] = total;
+        }
+        for (int i = 0; i < vocabularySize; i++) {
+            cumulativeWeights[i] /= total;
+        }
+
+        authors = new String[authorCount];
+        for (int i = 0; i < authorCount; i++) {
+            authors[i] = "author" + i;
+        }
+    }
+
+    ContentDto content(Random random) {
+        ContentDto content = new ContentDto();
+        content.setTitle(text(random, 4 + random.nextInt(6)));
+        content.setBody(text(random, 100 + random.nextInt(400)));
+        content.setCategory(category(random));
+        content.setAuthor(author(random));
+        content.setTags(text(random, 3));
+        return content;
+    }
+
+    String query(Random random) {
+        return text(random, 1 + random.nextInt(3));
+    }
+
+    String category(Random random) {
+        return CATEGORIES[random.nextInt(CATEGORIES.length)];
+    }
+
+    String author(Random random) {
+        return authors[random.nextInt(authors.length)];
+    }
+
+    private String text(Random random, int words) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(vocabulary[zipfIndex(random)]);
+        }
+        return text.toString();
+    }
+
+    private int zipfIndex(Random random) {
+        double target = random.nextDouble();
+        int low = 0;
+        int high = cumulativeWeights.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulativeWeights[mid] < target) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static String word(int index) {
+        // Pronounceable, analyzer-friendly tokens: no digits, so they are never split
+        StringBuilder word = new StringBuilder();
+        String consonants = "bcdfghklmnprstvz";
+        String vowels = "aeiou";
+        int value = index;
+        do {
+            word.append(consonants.charAt(value % consonants.length()));
+            value /= consonants.length();
+            word.append(vowels.charAt(value % vowels.length()));
+            value /= vowels.length();
+        } while (value > 0);
+        return word.toString();
+    }
+}
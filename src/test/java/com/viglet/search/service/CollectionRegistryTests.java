@@ -0,0 +1,172 @@
+package com.viglet.search.service;
+
+import com.viglet.search.config.LuceneConfig;
+import com.viglet.search.dto.SearchRequestDto;
+import com.viglet.search.entity.Content;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CollectionRegistryTests {
+
+    @TempDir
+    Path directory;
+
+    private AnnotationConfigApplicationContext context;
+    private CollectionRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("viglet.search.index.path", directory.resolve("default").toString())
+                .withProperty("viglet.search.collections.path", directory.resolve("collections").toString())
+                .withProperty("viglet.search.collections.names", "news,docs")
+                // Every collection without a lease is idle
+                .withProperty("viglet.search.collections.idle-timeout", "PT0S")
+                .withProperty("viglet.search.collections.news.max-concurrent-searches", "1");
+
+        context = new AnnotationConfigApplicationContext();
+        context.setEnvironment(environment);
+        context.getBeanFactory().setConversionService(ApplicationConversionService.getSharedInstance());
+        context.register(LuceneConfig.class);
+        context.registerBean(EmbeddingProvider.class, () -> new HashingEmbeddingProvider(new StandardAnalyzer(), 16));
+        // A pool rather than a single thread executor, which hides its task count
+        context.registerBean("searchExecutor", ExecutorService.class, () -> Executors.newFixedThreadPool(1),
+                definition -> definition.setDestroyMethodName("shutdown"));
+        context.registerBean(LuceneService.class);
+        context.registerBean(CollectionRegistry.class);
+        context.refresh();
+        registry = context.getBean(CollectionRegistry.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void unknownCollectionIsRejected() {
+        assertThrows(UnknownCollectionException.class, () -> registry.search("missing", service -> null));
+        assertThrows(UnknownCollectionException.class, () -> registry.write("missing", service -> { }));
+    }
+
+    @Test
+    void leasedCollectionIsNotClosed() throws Exception {
+        registry.search("news", service -> {
+            registry.closeIdle();
+            assertTrue(registry.isOpen("news"));
+            return null;
+        });
+
+        registry.closeIdle();
+        assertFalse(registry.isOpen("news"));
+    }
+
+    @Test
+    void idleCollectionIsClosedAndReopenedWithItsContent() throws Exception {
+        registry.write("docs", service -> service.indexContent(content(1L, "Lucene collections")));
+        registry.closeIdle();
+        assertFalse(registry.isOpen("docs"));
+
+        assertEquals(1, registry.search("docs", service -> service.search(request("lucene"))).size());
+        assertTrue(registry.isOpen("docs"));
+        assertTrue(registry.search("news", service -> service.search(request("lucene"))).isEmpty());
+    }
+
+    @Test
+    void searchesBeyondTheCollectionCapAreRejected() throws Exception {
+        assertThrows(RejectedExecutionException.class, () -> registry.search("news",
+                outer -> registry.search("news", inner -> null)));
+        // The cap is per collection
+        assertEquals(List.of(), registry.search("news", service -> registry.search("docs",
+                inner -> inner.search(request("lucene")))));
+    }
+
+    @Test
+    void multiSearchFanOutCountsAgainstTheCollectionCap() throws Exception {
+        ThreadPoolExecutor searchExecutor = context.getBean("searchExecutor", ThreadPoolExecutor.class);
+        List<SearchRequestDto> requests = List.of(request("lucene"), request("other"));
+
+        // The search itself holds the only permit of news, so its requests run on this thread
+        assertEquals(2, registry.search("news", service -> service.multiSearch(requests)).size());
+        assertEquals(0, searchExecutor.getTaskCount());
+
+        assertEquals(2, registry.search("docs", service -> service.multiSearch(requests)).size());
+        assertEquals(2, searchExecutor.getTaskCount());
+    }
+
+    @Test
+    void rolloverSkipsClosedCollections() throws Exception {
+        registry.write("docs", service -> service.indexContent(content(1L, "Lucene collections")));
+        registry.closeIdle();
+
+        registry.rolloverPartitions();
+        assertFalse(registry.isOpen("docs"));
+    }
+
+    @Test
+    void leasesRacingIdleClosesReopenTheCollection() throws Exception {
+        registry.write("docs", service -> service.indexContent(content(1L, "Lucene collections")));
+        ExecutorService clients = Executors.newFixedThreadPool(3);
+        AtomicBoolean running = new AtomicBoolean(true);
+        try {
+            Future<?> closer = clients.submit(() -> {
+                while (running.get()) {
+                    registry.closeIdle();
+                }
+            });
+            List<Future<Integer>> searches = new ArrayList<>();
+            for (int client = 0; client < 2; client++) {
+                long firstId = 100 + client * 100;
+                searches.add(clients.submit(() -> {
+                    int found = 0;
+                    for (int i = 0; i < 100; i++) {
+                        // Writes take the index's write lock, which a close still in progress holds
+                        Content content = content(firstId + i, "Other");
+                        registry.write("docs", service -> service.indexContent(content));
+                        found += registry.search("docs", service -> service.search(request("lucene"))).size();
+                    }
+                    return found;
+                }));
+            }
+            for (Future<Integer> search : searches) {
+                assertEquals(100, search.get());
+            }
+            running.set(false);
+            closer.get();
+        } finally {
+            running.set(false);
+            clients.shutdown();
+        }
+    }
+
+    private static SearchRequestDto request(String query) {
+        return new SearchRequestDto(query, null, null, 10, null);
+    }
+
+    private static Content content(Long id, String title) {
+        Content content = new Content(title, "body", "tech", "author", null);
+        content.setId(id);
+        return content;
+    }
+}
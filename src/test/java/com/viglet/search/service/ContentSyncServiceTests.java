@@ -0,0 +1,163 @@
+package com.viglet.search.service;
+
+import com.viglet.search.entity.Content;
+import com.viglet.search.repository.ContentRepository;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest
+class ContentSyncServiceTests {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    @Autowired
+    private ContentRepository contentRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @TempDir
+    Path indexDirectory;
+
+    private final Analyzer analyzer = new StandardAnalyzer();
+    private final List<Content> indexed = new ArrayList<>();
+    private ExecutorService executor;
+    private PartitionedIndex index;
+    private Runnable onFirstBatch;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        executor = Executors.newSingleThreadExecutor();
+        openIndex();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        index.close();
+        executor.shutdown();
+    }
+
+    @Test
+    void resumesFromTheWatermarkInTheCommitData() throws IOException {
+        Long first = insert("first", T0.plusSeconds(1));
+        Long second = insert("second", T0.plusSeconds(2));
+        Long third = insert("third", T0.plusSeconds(3));
+
+        assertEquals(3, newSyncService(10).sync());
+        assertEquals(List.of(first, second, third), indexedIds());
+
+        // A restarted process only knows what the index commit recorded
+        index.close();
+        openIndex();
+        indexed.clear();
+        LuceneService reopened = newLuceneService();
+        assertEquals(T0.plusSeconds(3), reopened.getSyncWatermark());
+
+        Long fourth = insert("fourth", T0.plusSeconds(4));
+        assertEquals(2, newSyncService(10, reopened).sync());
+        // The row at the watermark is re-read because the cursor resumes inclusively
+        assertEquals(List.of(third, fourth), indexedIds());
+        assertEquals(T0.plusSeconds(4), reopened.getSyncWatermark());
+    }
+
+    @Test
+    void rowsSharingUpdatedAtAreNotSkippedAcrossBatches() throws IOException {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(insert("tie " + i, T0));
+        }
+
+        assertEquals(5, newSyncService(2).sync());
+        assertEquals(ids, indexedIds());
+    }
+
+    @Test
+    void rowsUpdatedDuringTheScanAreIndexedInTheirNewPosition() throws IOException {
+        Long first = insert("first", T0.plusSeconds(1));
+        Long second = insert("second", T0.plusSeconds(2));
+        Long third = insert("third", T0.plusSeconds(3));
+        Long fourth = insert("fourth", T0.plusSeconds(4));
+
+        onFirstBatch = () -> {
+            // One row behind the cursor and one ahead of it change while the first batch is indexed
+            update(first, "first edited", T0.plusSeconds(5));
+            update(third, "third", T0.plusSeconds(6));
+        };
+
+        assertEquals(5, newSyncService(2).sync());
+        assertEquals(List.of(first, second, fourth, first, third), indexedIds());
+        assertEquals("first edited", indexed.get(3).getTitle());
+    }
+
+    private ContentSyncService newSyncService(int batchSize) throws IOException {
+        return newSyncService(batchSize, newLuceneService());
+    }
+
+    private ContentSyncService newSyncService(int batchSize, LuceneService luceneService) {
+        ContentSyncService syncService = new ContentSyncService(contentRepository, luceneService);
+        ReflectionTestUtils.setField(syncService, "batchSize", batchSize);
+        ReflectionTestUtils.setField(syncService, "overlap", Duration.ZERO);
+        return syncService;
+    }
+
+    private LuceneService newLuceneService() {
+        return new LuceneService(index, analyzer, new HashingEmbeddingProvider(analyzer, 16), executor) {
+            @Override
+            public void indexBatch(List<Content> contents, LocalDateTime syncWatermark) throws IOException {
+                indexed.addAll(contents);
+                super.indexBatch(contents, syncWatermark);
+                if (onFirstBatch != null) {
+                    Runnable action = onFirstBatch;
+                    onFirstBatch = null;
+                    action.run();
+                }
+            }
+        };
+    }
+
+    private void openIndex() throws IOException {
+        index = new PartitionedIndex(indexDirectory, null, 1, () -> new IndexWriterConfig(analyzer));
+    }
+
+    private List<Long> indexedIds() {
+        return indexed.stream().map(Content::getId).toList();
+    }
+
+    private Long insert(String title, LocalDateTime updatedAt) {
+        Long id = entityManager.persistAndFlush(new Content(title, "body of " + title, "tech", "author", null))
+                .getId();
+        update(id, title, updatedAt);
+        return id;
+    }
+
+    // Native SQL, because @PreUpdate would overwrite an updatedAt set on the entity
+    private void update(Long id, String title, LocalDateTime updatedAt) {
+        entityManager.getEntityManager()
+                .createNativeQuery("UPDATE content SET title = ?1, updated_at = ?2 WHERE id = ?3")
+                .setParameter(1, title)
+                .setParameter(2, updatedAt)
+                .setParameter(3, id)
+                .executeUpdate();
+        entityManager.clear();
+    }
+}
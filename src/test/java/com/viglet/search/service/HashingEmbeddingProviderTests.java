@@ -0,0 +1,27 @@
+package com.viglet.search.service;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class HashingEmbeddingProviderTests {
+
+    @Test
+    void embeddingIsDeterministicAndNormalized() {
+        HashingEmbeddingProvider provider = new HashingEmbeddingProvider(new StandardAnalyzer(), 64);
+
+        float[] first = provider.embed("Spring Boot and Lucene");
+        float[] second = provider.embed("spring boot and lucene");
+
+        assertArrayEquals(first, second);
+        double norm = 0;
+        for (float value : first) {
+            norm += value * value;
+        }
+        assertEquals(1.0, norm, 1e-5);
+        assertNull(provider.embed("   "));
+    }
+}
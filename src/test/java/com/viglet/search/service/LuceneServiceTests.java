@@ -0,0 +1,306 @@
+package com.viglet.search.service;
+
+import com.viglet.search.dto.MultiSearchResultDto;
+import com.viglet.search.dto.ProfiledSearchResultDto;
+import com.viglet.search.dto.SearchGroupDto;
+import com.viglet.search.dto.SearchProfileDto;
+import com.viglet.search.dto.SearchRequestDto;
+import com.viglet.search.dto.SearchResultDto;
+import com.viglet.search.entity.Content;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LuceneServiceTests {
+
+    @TempDir
+    Path indexDirectory;
+
+    private final Analyzer analyzer = new StandardAnalyzer();
+    private ExecutorService executor;
+    private PartitionedIndex index;
+    private LuceneService luceneService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        executor = Executors.newSingleThreadExecutor();
+        index = new PartitionedIndex(indexDirectory, null, 1, () -> new IndexWriterConfig(analyzer));
+        luceneService = newLuceneService(executor);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        index.close();
+        executor.shutdown();
+    }
+
+    @Test
+    void splitPassagesBreaksOnWhitespaceInTheSecondHalf() {
+        String text = "aaaa bbbb cccc dddd eeee ffff";
+
+        List<String> passages = LuceneService.splitPassages(text, 12);
+
+        assertEquals(List.of("aaaa bbbb", "cccc dddd", "eeee ffff"), passages);
+        assertEquals(List.of(text), LuceneService.splitPassages(text, text.length()));
+    }
+
+    @Test
+    void splitPassagesCutsTextWithoutWhitespaceAtThePassageSize() {
+        assertEquals(List.of("abcde", "fghij", "kl"), LuceneService.splitPassages("abcdefghijkl", 5));
+        // A space in the first half is not used as a boundary
+        assertEquals(List.of("a bcdef", "ghij"), LuceneService.splitPassages("a bcdefghij", 7));
+        assertEquals(List.of("x"), LuceneService.splitPassages("x", 1));
+        assertTrue(LuceneService.splitPassages("   ", 2).isEmpty());
+    }
+
+    @Test
+    void invalidPassageSizeIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> LuceneService.splitPassages("text", 0));
+
+        ReflectionTestUtils.setField(luceneService, "passageSize", 0);
+        assertThrows(IllegalArgumentException.class, luceneService::validateSettings);
+    }
+
+    @Test
+    void termVectorSettingMustMatchTheIndex() throws Exception {
+        luceneService.validateSettings();
+        luceneService.indexContent(content(1L, "Lucene guide", "About lucene", "alice", "tech"));
+        luceneService.validateSettings();
+
+        ReflectionTestUtils.setField(luceneService, "similarTermVectors", true);
+        IllegalStateException error = assertThrows(IllegalStateException.class, luceneService::validateSettings);
+        assertTrue(error.getMessage().contains("term-vectors=false"), error.getMessage());
+    }
+
+    @Test
+    void passageIndexedContentReturnsItsFullBody() throws Exception {
+        String body = "Opening words about indexing. ".repeat(3) + "The needle sits near the end of this body.";
+        luceneService.indexContent(content(1L, "Long document", body, "alice", "tech"));
+
+        List<SearchResultDto> results = luceneService.search(new SearchRequestDto("needle", null, null, 10, null));
+
+        assertEquals(1, results.size());
+        assertEquals(body, results.get(0).getBody());
+        assertTrue(results.get(0).getHighlightedBody().contains("<mark>needle</mark>"),
+                results.get(0).getHighlightedBody());
+    }
+
+    @Test
+    void similarContentOfPassageIndexedItemsIgnoresTheirStoredBody() throws Exception {
+        ReflectionTestUtils.setField(luceneService, "similarTermVectors", true);
+        ReflectionTestUtils.setField(luceneService, "similarMaxQueryTerms", 25);
+        ReflectionTestUtils.setField(luceneService, "similarMinTermFreq", 1);
+        ReflectionTestUtils.setField(luceneService, "similarMinDocFreq", 1);
+        String longBody = "Filler words about other topics. ".repeat(3) + "Here lucene finally appears.";
+        luceneService.indexContents(List.of(
+                content(1L, "Lucene guide", longBody, "alice", "tech"),
+                content(2L, "Lucene notes", "Unrelated text", "bob", "tech"),
+                content(3L, "Python", "Filler words about other topics", "carol", "tech")));
+
+        List<SearchResultDto> results = luceneService.similar(1L, 10);
+
+        // The body field of a passage-indexed item is empty, and its stored body is not re-analyzed
+        assertEquals(List.of(2L), results.stream().map(SearchResultDto::getId).toList());
+    }
+
+    @Test
+    void collapsedSearchGroupsParentsByAuthor() throws Exception {
+        String longBody = "Filler words about other topics. ".repeat(3) + "Here lucene finally appears.";
+        luceneService.indexContents(List.of(
+                content(1L, "Lucene intro", "Getting started with lucene", "alice", "tech"),
+                content(2L, "Long read", longBody, "alice", "tech"),
+                content(3L, "Lucene tips", "More lucene", "alice", "tech"),
+                content(4L, "Lucene notes", "Lucene again", "bob", "news"),
+                content(5L, "Python", "Nothing related", "carol", "tech")));
+
+        List<SearchGroupDto> groups = luceneService.groupedSearch(
+                new SearchRequestDto("lucene", null, null, 10, null), CollapseField.AUTHOR, 2);
+
+        assertEquals(List.of("alice", "bob"), groups.stream().map(SearchGroupDto::getKey).sorted().toList());
+        SearchGroupDto alice = groups.stream().filter(group -> "alice".equals(group.getKey())).findFirst()
+                .orElseThrow();
+        // The long read only matches through a passage, and still counts once, as its parent
+        assertEquals(3, alice.getTotalHits());
+        assertEquals(2, alice.getResults().size());
+        assertEquals(1, groups.stream().filter(group -> "bob".equals(group.getKey())).findFirst()
+                .orElseThrow().getTotalHits());
+        for (SearchGroupDto group : groups) {
+            for (SearchResultDto result : group.getResults()) {
+                assertTrue(result.getId() != null && result.getTitle() != null, "Passage returned as a hit");
+            }
+        }
+
+        List<SearchGroupDto> all = luceneService.groupedSearch(
+                new SearchRequestDto("lucene", null, null, 10, null), CollapseField.AUTHOR, 3);
+        assertEquals(List.of(1L, 2L, 3L), all.stream().filter(group -> "alice".equals(group.getKey()))
+                .flatMap(group -> group.getResults().stream()).map(SearchResultDto::getId).sorted().toList());
+    }
+
+    @Test
+    void rankingSignalsAreAddedToTheTextScore() throws Exception {
+        Content old = content(1L, "Lucene guide", "About lucene", "alice", "tech");
+        Content recent = content(2L, "Lucene guide", "About lucene", "bob", "tech");
+        recent.setUpdatedAt(LocalDateTime.now());
+        Content popular = content(3L, "Lucene guide", "About lucene", "carol", "tech");
+        popular.setClickCount(1000L);
+        luceneService.indexContents(List.of(old, recent, popular));
+        ReflectionTestUtils.setField(luceneService, "recencyPivot", Duration.ofDays(30));
+        ReflectionTestUtils.setField(luceneService, "popularityPivot", 10f);
+        SearchRequestDto request = new SearchRequestDto("lucene", null, null, 10, null);
+
+        ReflectionTestUtils.setField(luceneService, "recencyWeight", 1f);
+        assertEquals(2L, luceneService.search(request).get(0).getId());
+
+        ReflectionTestUtils.setField(luceneService, "recencyWeight", 0f);
+        ReflectionTestUtils.setField(luceneService, "popularityWeight", 1f);
+        List<SearchResultDto> results = luceneService.search(request);
+        assertEquals(3L, results.get(0).getId());
+        assertEquals(results.get(1).getScore() + 1000 / 1010f, results.get(0).getScore(), 0.05);
+    }
+
+    @Test
+    void profiledSearchReportsPhasesClausesSegmentsAndExplanations() throws Exception {
+        String longBody = "Filler words about other topics. ".repeat(3) + "Here lucene finally appears.";
+        // One commit each, so the matches are spread over several segments
+        luceneService.indexContent(content(1L, "Lucene intro", "Getting started with lucene", "alice", "tech"));
+        luceneService.indexContent(content(2L, "Long read", longBody, "alice", "tech"));
+        luceneService.indexContent(content(3L, "Python", "Nothing related", "bob", "tech"));
+        luceneService.indexContent(content(4L, "Lucene tips", "More lucene", "bob", "news"));
+
+        ProfiledSearchResultDto profiled = luceneService.profileSearch(
+                new SearchRequestDto("lucene", null, null, 10, null), 5);
+        SearchProfileDto profile = profiled.getProfile();
+
+        assertEquals(3, profiled.getResults().size());
+        assertEquals(Set.of("parse", "search", "storedFields", "passages", "highlight"), 
+                profile.getPhaseNanos().keySet());
+        assertEquals(1, profile.getQueryProfile().size());
+        assertFalse(profile.getQueryProfile().get(0).getChildren().isEmpty());
+        assertTrue(profile.getQueryProfile().get(0).getTotalNanos() > 0);
+        assertTrue(profile.getSegments().size() > 1, "Expected several segments");
+        assertEquals(3, profile.getSegments().stream().mapToInt(SearchProfileDto.SegmentHits::getHits).sum());
+        // Only as many explanations as there are hits
+        assertEquals(3, profile.getExplanations().size());
+        assertEquals(profiled.getResults().stream().map(SearchResultDto::getId).toList(),
+                profile.getExplanations().stream().map(SearchProfileDto.HitExplanation::getId).toList());
+
+        ProfiledSearchResultDto limited = luceneService.profileSearch(
+                new SearchRequestDto("lucene", null, null, 10, null), 1);
+        assertEquals(1, limited.getProfile().getExplanations().size());
+    }
+
+    @Test
+    void identicalRequestsInOneMultiSearchRunOnce() throws Exception {
+        luceneService.indexContents(List.of(
+                content(1L, "Lucene guide", "About lucene", "alice", "tech"),
+                content(2L, "Python guide", "About python", "bob", "tech")));
+        // The pool's only worker is held, so every task is still in flight when its duplicate arrives
+        CountDownLatch release = new CountDownLatch(1);
+        ThreadPoolExecutor paused = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        paused.execute(() -> awaitUninterruptibly(release));
+        try {
+            List<MultiSearchResultDto> responses = newLuceneService(paused).multiSearch(List.of(
+                    request("lucene"), request("python"), request("lucene")));
+
+            assertEquals(List.of(List.of(1L), List.of(2L), List.of(1L)), resultIds(responses));
+            Set<Runnable> executions = Collections.newSetFromMap(new IdentityHashMap<>());
+            executions.addAll(paused.getQueue());
+            assertEquals(3, paused.getQueue().size());
+            assertEquals(2, executions.size());
+        } finally {
+            release.countDown();
+            paused.shutdown();
+        }
+    }
+
+    @Test
+    void multiSearchRunsInlineWhenTheExecutorRejects() throws Exception {
+        luceneService.indexContents(List.of(
+                content(1L, "Lucene guide", "About lucene", "alice", "tech"),
+                content(2L, "Python guide", "About python", "bob", "tech")));
+        ExecutorService rejecting = Executors.newSingleThreadExecutor();
+        rejecting.shutdown();
+
+        List<MultiSearchResultDto> responses = newLuceneService(rejecting).multiSearch(List.of(
+                request("python"), request("lucene"), request("guide")));
+
+        assertEquals(List.of(List.of(2L), List.of(1L), List.of(1L, 2L)), resultIds(responses));
+    }
+
+    @Test
+    void multiSearchReportsFailuresPerRequest() throws Exception {
+        luceneService.indexContent(content(1L, "Lucene guide", "About lucene", "alice", "tech"));
+
+        List<MultiSearchResultDto> responses = luceneService.multiSearch(List.of(
+                request("lucene"), new SearchRequestDto("lucene", null, null, 10, "fuzzy"), request("guide")));
+
+        assertEquals(List.of(200, 400, 200), responses.stream().map(MultiSearchResultDto::getStatus).toList());
+        assertTrue(responses.get(1).getError().contains("fuzzy"), responses.get(1).getError());
+        assertEquals(List.of(1L), responses.get(2).getResults().stream().map(SearchResultDto::getId).toList());
+
+        ReflectionTestUtils.setField(luceneService, "maxMultiSearchRequests", 2);
+        assertThrows(IllegalArgumentException.class, () -> luceneService.multiSearch(List.of(
+                request("a"), request("b"), request("c"))));
+    }
+
+    private LuceneService newLuceneService(ExecutorService searchExecutor) {
+        LuceneService service = new LuceneService(index, analyzer, new HashingEmbeddingProvider(analyzer, 16), 
+                searchExecutor);
+        ReflectionTestUtils.setField(service, "passageEnabled", true);
+        ReflectionTestUtils.setField(service, "passageThreshold", 60);
+        ReflectionTestUtils.setField(service, "passageSize", 40);
+        ReflectionTestUtils.setField(service, "maxMultiSearchRequests", 50);
+        return service;
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static List<List<Long>> resultIds(List<MultiSearchResultDto> responses) {
+        return responses.stream().map(response -> {
+            assertEquals(200, response.getStatus(), response.getError());
+            return response.getResults().stream().map(SearchResultDto::getId).sorted().toList();
+        }).toList();
+    }
+
+    private static SearchRequestDto request(String query) {
+        return new SearchRequestDto(query, null, null, 10, null);
+    }
+
+    private static Content content(Long id, String title, String body, String author, String category) {
+        Content content = new Content(title, body, category, author, null);
+        content.setId(id);
+        content.setCreatedAt(LocalDateTime.of(2024, 1, 1, 12, 0));
+        content.setUpdatedAt(LocalDateTime.of(2024, 1, 1, 12, 0));
+        return content;
+    }
+}
@@ -0,0 +1,136 @@
+package com.viglet.search.service;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PartitionedIndexTests {
+
+    private static final LocalDateTime JANUARY = LocalDateTime.of(2020, 1, 15, 10, 0);
+    private static final LocalDateTime FEBRUARY = LocalDateTime.of(2020, 2, 10, 10, 0);
+
+    @TempDir
+    Path indexDirectory;
+
+    private PartitionedIndex index;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        index = open();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        index.close();
+    }
+
+    @Test
+    void searchesOnlyPartitionsOverlappingTheRange() throws IOException {
+        add(1, JANUARY);
+        add(2, FEBRUARY);
+        add(3, LocalDateTime.now());
+
+        assertPartitions(List.of("2020-02"), 1, FEBRUARY.minusDays(9), FEBRUARY);
+        assertPartitions(List.of("2020-01", "2020-02"), 2, null, FEBRUARY);
+        String current = PartitionedIndex.Period.MONTH.partitionName(
+                PartitionedIndex.Period.MONTH.start(LocalDateTime.now()));
+        assertPartitions(List.of("2020-01", "2020-02", current), 3, null, null);
+    }
+
+    @Test
+    void rolloverFreezesColdPartitionsToOneSegment() throws IOException {
+        add(1, JANUARY);
+        add(2, JANUARY.plusDays(1));
+        assertEquals(2, segments(JANUARY));
+
+        index.rollover();
+        assertEquals(1, segments(JANUARY));
+
+        // Deletes still reach a frozen partition, which the next rollover merges again
+        index.deleteDocuments(LongPoint.newExactQuery("id", 1));
+        index.commit();
+        index.rollover();
+        assertPartitions(List.of("2020-01"), 1, JANUARY, JANUARY.plusDays(1));
+        assertEquals(1, segments(JANUARY));
+    }
+
+    @Test
+    void deletesAreRoutedByCreatedAtAndFallBackToAllPartitions() throws IOException {
+        add(1, JANUARY);
+        add(2, FEBRUARY);
+        add(3, FEBRUARY);
+
+        index.deleteDocuments(FEBRUARY, LongPoint.newExactQuery("id", 2));
+        // A createdAt outside the owning partition misses the document
+        index.deleteDocuments(FEBRUARY, LongPoint.newExactQuery("id", 1));
+        index.commit();
+        assertPartitions(List.of("2020-01", "2020-02"), 2, null, FEBRUARY);
+
+        // Without a createdAt, or with one whose partition does not exist, every partition is searched
+        index.deleteDocuments(null, LongPoint.newExactQuery("id", 1));
+        index.deleteDocuments(JANUARY.minusYears(1), LongPoint.newExactQuery("id", 3));
+        index.commit();
+        assertPartitions(List.of("2020-01", "2020-02"), 0, null, FEBRUARY);
+    }
+
+    @Test
+    void commitDataSurvivesRolloverAndReopen() throws IOException {
+        add(1, JANUARY);
+        index.setCommitData("watermark", "2020-01-15T10:00:00");
+        index.commit();
+        index.rollover();
+
+        index.close();
+        index = open();
+
+        assertEquals(List.of("2020-01-15T10:00:00"), index.getCommitData("watermark"));
+        assertPartitions(List.of("2020-01"), 1, null, null);
+    }
+
+    private PartitionedIndex open() throws IOException {
+        StandardAnalyzer analyzer = new StandardAnalyzer();
+        return new PartitionedIndex(indexDirectory, PartitionedIndex.Period.MONTH, 1,
+                () -> new IndexWriterConfig(analyzer));
+    }
+
+    private void add(long id, LocalDateTime createdAt) throws IOException {
+        Document document = new Document();
+        document.add(new LongPoint("id", id));
+        index.addDocuments(createdAt, List.of(document));
+        index.commit();
+    }
+
+    private void assertPartitions(List<String> expected, int hits, LocalDateTime from, LocalDateTime to)
+            throws IOException {
+        IndexSearcher searcher = index.acquire(from, to);
+        try {
+            assertEquals(expected, index.partitionNames(searcher));
+            assertEquals(hits, searcher.count(new MatchAllDocsQuery()));
+        } finally {
+            index.release(searcher);
+        }
+    }
+
+    private int segments(LocalDateTime month) throws IOException {
+        IndexSearcher searcher = index.acquire(month, month);
+        try {
+            return searcher.getIndexReader().leaves().size();
+        } finally {
+            index.release(searcher);
+        }
+    }
+}
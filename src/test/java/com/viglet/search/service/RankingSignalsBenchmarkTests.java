@@ -0,0 +1,211 @@
+package com.viglet.search.service;
+
+import com.viglet.search.entity.Content;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.FeatureField;
+import org.apache.lucene.document.LongField;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TopDocs;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares top-10 latency and the number of hits counted for plain BM25, BM25 plus the ranking signals
+ * as built for searches, and the signals as optional clauses next to a required text query. The built
+ * signals must keep pruning, unlike the clause variant. They lift documents that BM25 alone would skip,
+ * so they count more hits than plain BM25, but each hit must cost no more than it does for plain BM25.
+ */
+@Tag("benchmark")
+class RankingSignalsBenchmarkTests {
+
+    private static final int DOCUMENTS = 100_000;
+    private static final int QUERIES = 500;
+    // Allowance for run-to-run noise only
+    private static final double NOISE = 1.1;
+
+    @TempDir
+    Path indexDirectory;
+
+    @Test
+    void topKLatencyWithRankingSignals() throws Exception {
+        Analyzer analyzer = new StandardAnalyzer();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (PartitionedIndex index = new PartitionedIndex(indexDirectory, null, 1,
+                () -> new IndexWriterConfig(analyzer))) {
+            LuceneService luceneService = new LuceneService(index, analyzer,
+                    new HashingEmbeddingProvider(analyzer, 16), executor);
+            ReflectionTestUtils.setField(luceneService, "recencyPivot", Duration.ofDays(30));
+            ReflectionTestUtils.setField(luceneService, "popularityPivot", 10f);
+
+            Random random = new Random(42);
+            ZipfVocabulary vocabulary = new ZipfVocabulary(10_000);
+            index(luceneService, vocabulary, random);
+
+            List<Query> queries = new ArrayList<>();
+            for (int i = 0; i < QUERIES; i++) {
+                // Common terms, so queries match far more documents than the top-k needs
+                queries.add(luceneService.buildQuery("w" + random.nextInt(300) + " w" + random.nextInt(300),
+                        null, null));
+            }
+
+            IndexSearcher searcher = index.acquire(null, null);
+            try {
+                List<Query> plainQueries = queries;
+                ReflectionTestUtils.setField(luceneService, "recencyWeight", 1f);
+                ReflectionTestUtils.setField(luceneService, "popularityWeight", 1f);
+                List<Query> signalQueries = queries.stream().map(luceneService::addRankingSignals).toList();
+                List<Query> requiredQueries = queries.stream().<Query>map(query -> new BooleanQuery.Builder()
+                        .add(query, BooleanClause.Occur.MUST)
+                        .add(LongField.newDistanceFeatureQuery("updatedAtMillis", 1f,
+                                System.currentTimeMillis(), Duration.ofDays(30).toMillis()), BooleanClause.Occur.SHOULD)
+                        .add(FeatureField.newSaturationQuery("features", "popularity", 1f, 10f),
+                                BooleanClause.Occur.SHOULD)
+                        .build()).toList();
+                List<Result> results = run(searcher, List.of(plainQueries, signalQueries, requiredQueries));
+                Result plain = results.get(0);
+                Result signals = results.get(1);
+                Result required = results.get(2);
+                long matches = 0;
+                for (Query query : queries) {
+                    matches += searcher.count(query);
+                }
+
+                System.out.printf("Top-10 over %d documents, %d queries, %d matches%n", DOCUMENTS, QUERIES, matches);
+                System.out.printf("%-20s %10s %10s %14s%n", "variant", "mean ms", "p99 ms", "hits counted");
+                plain.print("bm25");
+                signals.print("bm25 + signals");
+                required.print("must bm25 + signals");
+
+                assertTrue(signals.hitsCounted < matches / 2,
+                        "Ranking signals should let top-k collection skip most matches");
+                assertTrue(signals.millisPerHit() <= plain.millisPerHit() * NOISE,
+                        "Ranking signals should not make a counted hit slower than plain BM25");
+                assertTrue(signals.meanMillis < required.meanMillis && signals.p99Millis < required.p99Millis,
+                        "Ranking signals should be faster than optional signal clauses");
+            } finally {
+                index.release(searcher);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void index(LuceneService luceneService, ZipfVocabulary vocabulary, Random random)
+            throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        List<Content> batch = new ArrayList<>();
+        for (long id = 1; id <= DOCUMENTS; id++) {
+            Content content = new Content(vocabulary.text(random, 5), vocabulary.text(random, 40), "news",
+                    "author", null);
+            content.setId(id);
+            content.setCreatedAt(now.minusMinutes(random.nextInt(2 * 365 * 24 * 60)));
+            content.setUpdatedAt(content.getCreatedAt());
+            if (random.nextInt(5) == 0) {
+                content.setClickCount((long) Math.pow(1000, random.nextDouble()));
+            }
+            batch.add(content);
+            if (batch.size() == 10_000) {
+                luceneService.indexContents(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Runs every variant's queries in interleaved rounds, so JIT and GC effects fall on all of them alike.
+     */
+    private static List<Result> run(IndexSearcher searcher, List<List<Query>> variants) throws Exception {
+        for (int round = 0; round < 5; round++) {
+            for (List<Query> queries : variants) {
+                for (Query query : queries) {
+                    searcher.search(query, 10);
+                }
+            }
+        }
+
+        int rounds = 5;
+        long[][] nanos = new long[variants.size()][];
+        long[] hitsCounted = new long[variants.size()];
+        for (int v = 0; v < variants.size(); v++) {
+            nanos[v] = new long[variants.get(v).size() * rounds];
+        }
+        for (int round = 0; round < rounds; round++) {
+            for (int offset = 0; offset < variants.size(); offset++) {
+                // Rotate which variant goes first
+                int v = (round + offset) % variants.size();
+                List<Query> queries = variants.get(v);
+                for (int q = 0; q < queries.size(); q++) {
+                    long start = System.nanoTime();
+                    TopDocs topDocs = searcher.search(queries.get(q), 10);
+                    nanos[v][round * queries.size() + q] = System.nanoTime() - start;
+                    if (round == 0) {
+                        hitsCounted[v] += topDocs.totalHits.value;
+                    }
+                }
+            }
+        }
+
+        List<Result> results = new ArrayList<>(variants.size());
+        for (int v = 0; v < variants.size(); v++) {
+            long[] sorted = nanos[v];
+            Arrays.sort(sorted);
+            results.add(new Result(Arrays.stream(sorted).average().orElse(0) / 1e6,
+                    sorted[(int) (sorted.length * 0.99)] / 1e6, hitsCounted[v]));
+        }
+        return results;
+    }
+
+    private record Result(double meanMillis, double p99Millis, long hitsCounted) {
+
+        double millisPerHit() {
+            return meanMillis * QUERIES / hitsCounted;
+        }
+
+        void print(String variant) {
+            System.out.printf("%-20s %10.3f %10.3f %14d%n", variant, meanMillis, p99Millis, hitsCounted);
+        }
+    }
+
+    private static final class ZipfVocabulary {
+
+        private final double[] cumulative;
+
+        private ZipfVocabulary(int size) {
+            cumulative = new double[size];
+            double sum = 0;
+            for (int rank = 0; rank < size; rank++) {
+                sum += 1.0 / (rank + 1);
+                cumulative[rank] = sum;
+            }
+        }
+
+        private String text(Random random, int words) {
+            StringBuilder text = new StringBuilder();
+            for (int word = 0; word < words; word++) {
+                double target = random.nextDouble() * cumulative[cumulative.length - 1];
+                int rank = Arrays.binarySearch(cumulative, target);
+                text.append('w').append(rank < 0 ? -rank - 1 : rank).append(' ');
+            }
+            return text.toString();
+        }
+    }
+}
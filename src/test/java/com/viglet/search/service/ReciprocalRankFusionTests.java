@@ -0,0 +1,32 @@
+package com.viglet.search.service;
+
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHits;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ReciprocalRankFusionTests {
+
+    @Test
+    void docsFoundByBothRankingsComeFirst() {
+        TopDocs lexical = topDocs(1, 2, 3);
+        TopDocs knn = topDocs(4, 3, 5);
+
+        ScoreDoc[] fused = ReciprocalRankFusion.fuse(60, 3, lexical, knn);
+
+        assertEquals(3, fused.length);
+        assertEquals(3, fused[0].doc);
+        assertEquals(1, fused[1].doc);
+        assertEquals(4, fused[2].doc);
+    }
+
+    private static TopDocs topDocs(int... docs) {
+        ScoreDoc[] scoreDocs = new ScoreDoc[docs.length];
+        for (int i = 0; i < docs.length; i++) {
+            scoreDocs[i] = new ScoreDoc(docs[i], docs.length - i);
+        }
+        return new TopDocs(new TotalHits(docs.length, TotalHits.Relation.EQUAL_TO), scoreDocs);
+    }
+}
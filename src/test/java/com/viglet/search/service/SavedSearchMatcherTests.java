@@ -0,0 +1,176 @@
+package com.viglet.search.service;
+
+import com.viglet.search.entity.Content;
+import com.viglet.search.entity.SavedSearch;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.monitor.Monitor;
+import org.apache.lucene.monitor.TermFilteredPresearcher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SavedSearchMatcherTests {
+
+    private final List<SavedSearch> sunk = new ArrayList<>();
+
+    @TempDir
+    Path indexDirectory;
+
+    private ExecutorService executor;
+    private PartitionedIndex index;
+    private Monitor monitor;
+    private SavedSearchMatcher matcher;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Analyzer analyzer = new StandardAnalyzer();
+        executor = Executors.newSingleThreadExecutor();
+        index = new PartitionedIndex(indexDirectory, null, 1, () -> new IndexWriterConfig(analyzer));
+        LuceneService luceneService = new LuceneService(index, analyzer, new HashingEmbeddingProvider(analyzer, 16),
+                executor);
+        monitor = new Monitor(analyzer, new TermFilteredPresearcher());
+        matcher = new SavedSearchMatcher(monitor, luceneService, (content, matches) -> sunk.addAll(matches));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        monitor.close();
+        index.close();
+        executor.shutdown();
+    }
+
+    @Test
+    void onlyMatchingSavedSearchesReachTheSink() throws Exception {
+        matcher.register(savedSearch(1L, "lucene", null));
+        matcher.register(savedSearch(2L, "spring boot", "news"));
+        matcher.register(savedSearch(3L, "python", null));
+
+        List<SavedSearch> matches = matcher.match(content("Lucene in Spring Boot", "Indexing with Lucene", "tech"));
+
+        assertEquals(List.of(1L), matches.stream().map(SavedSearch::getId).toList());
+        assertEquals(matches, sunk);
+
+        matcher.unregister(1L);
+        assertTrue(matcher.match(content("Lucene", "Lucene", "tech")).isEmpty());
+    }
+
+    @Test
+    void sinkWaitsForTheTransactionToCommit() throws Exception {
+        matcher.register(savedSearch(1L, "lucene", null));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            assertEquals(1, matcher.match(content("Lucene", "Lucene", "tech")).size());
+            assertTrue(sunk.isEmpty());
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertEquals(List.of(1L), sunk.stream().map(SavedSearch::getId).toList());
+
+        sunk.clear();
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            matcher.match(content("Lucene", "Lucene", "tech"));
+            // A rollback completes without afterCommit
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertTrue(sunk.isEmpty());
+    }
+
+    @Test
+    void monitorChangesWaitForTheTransactionToCommit() throws Exception {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            matcher.register(savedSearch(1L, "lucene", null));
+            assertEquals(0, matcher.size());
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertEquals(1, matcher.match(content("Lucene", "Lucene", "tech")).size());
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            matcher.register(savedSearch(2L, "lucene", null));
+            matcher.unregister(1L);
+            // A rollback completes without afterCommit
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertEquals(List.of(1L), matcher.match(content("Lucene", "Lucene", "tech")).stream()
+                .map(SavedSearch::getId).toList());
+    }
+
+    @Test
+    @Tag("benchmark")
+    void matchThroughputWithTenThousandSavedSearches() throws Exception {
+        Random random = new Random(42);
+        String[] vocabulary = new String[20_000];
+        for (int i = 0; i < vocabulary.length; i++) {
+            vocabulary[i] = "term" + i;
+        }
+
+        List<SavedSearch> savedSearches = new ArrayList<>();
+        for (long id = 1; id <= 10_000; id++) {
+            String query = vocabulary[random.nextInt(vocabulary.length)] + " " 
+                    + vocabulary[random.nextInt(vocabulary.length)];
+            savedSearches.add(savedSearch(id, query, id % 10 == 0 ? "news" : null));
+        }
+        long registerStart = System.nanoTime();
+        matcher.registerAll(savedSearches);
+        long registerMillis = (System.nanoTime() - registerStart) / 1_000_000;
+
+        List<Content> documents = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder body = new StringBuilder();
+            for (int word = 0; word < 50; word++) {
+                body.append(vocabulary[random.nextInt(vocabulary.length)]).append(' ');
+            }
+            documents.add(content("Document " + i, body.toString(), i % 2 == 0 ? "news" : "tech"));
+        }
+
+        long matchStart = System.nanoTime();
+        long totalMatches = 0;
+        for (Content document : documents) {
+            totalMatches += matcher.match(document).size();
+        }
+        double matchSeconds = (System.nanoTime() - matchStart) / 1e9;
+
+        System.out.printf("Saved searches: %d, registered in %d ms%n", matcher.size(), registerMillis);
+        System.out.printf("Matched %d documents in %.2f s (%.0f docs/s), %d matches%n",
+                documents.size(), matchSeconds, documents.size() / matchSeconds, totalMatches);
+        assertTrue(totalMatches > 0);
+    }
+
+    private static SavedSearch savedSearch(Long id, String query, String category) {
+        SavedSearch savedSearch = new SavedSearch("search " + id, query, category, null, "owner");
+        savedSearch.setId(id);
+        return savedSearch;
+    }
+
+    private static Content content(String title, String body, String category) {
+        return new Content(title, body, category, "author", null);
+    }
+}